@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-sample cost of each {@link BandwidthEstimator}, with a full window for the
+ * windowed ones. Compare with {@link ExponentialGeometricAverageBenchmark}, the default.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BandwidthEstimatorBenchmark {
+
+  private static final int SAMPLE_COUNT = 1024;
+
+  @Param({"average", "median", "hampel", "kalman"})
+  public String mEstimator;
+
+  @Param({"9"})
+  public int mWindowSize;
+
+  private final double[] mMeasurements = new double[SAMPLE_COUNT];
+  private BandwidthEstimator mEstimatorInstance;
+  private int mIndex;
+
+  @Setup(Level.Trial)
+  public void setUpMeasurements() {
+    Random random = new Random(42);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      mMeasurements[i] = 50 + random.nextDouble() * 5000;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpEstimator() {
+    if ("average".equals(mEstimator)) {
+      mEstimatorInstance = new ExponentialGeometricAverage(0.05);
+    } else if ("median".equals(mEstimator)) {
+      mEstimatorInstance = new WindowedMedianEstimator(mWindowSize);
+    } else if ("hampel".equals(mEstimator)) {
+      mEstimatorInstance = new HampelEstimator(mWindowSize, 3, 0.05);
+    } else if ("kalman".equals(mEstimator)) {
+      mEstimatorInstance = new KalmanEstimator(0.01, 0.25);
+    } else {
+      throw new IllegalArgumentException("Unknown estimator " + mEstimator);
+    }
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      mEstimatorInstance.addMeasurement(mMeasurements[i]);
+    }
+  }
+
+  @Benchmark
+  public double addMeasurement() {
+    mIndex = (mIndex + 1) & (SAMPLE_COUNT - 1);
+    mEstimatorInstance.addMeasurement(mMeasurements[mIndex]);
+    return mEstimatorInstance.getLogAverage();
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replay throughput of a synthetic trace, per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BandwidthTraceReplayerBenchmark {
+
+  private static final int SAMPLE_COUNT = 100000;
+
+  private byte[] mTrace;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(42);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BandwidthTraceWriter writer = new BandwidthTraceWriter(out, NanoTimeClock.getInstance());
+    long timestampMs = 0;
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      timestampMs += 1000;
+      // Slowly varying bandwidth between roughly 50 and 5000 kbps, in 1 s samples.
+      double kbps = 500 * Math.exp(2.3 * Math.sin(i / 200.0)) * (0.8 + 0.4 * random.nextDouble());
+      writer.append(timestampMs, (long) (kbps * 1000 / 8), 1000);
+    }
+    writer.close();
+    mTrace = out.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLE_COUNT)
+  public int replay() throws IOException {
+    return BandwidthTraceReplayer
+        .replay(new ByteArrayInputStream(mTrace), new ConnectionClassManager())
+        .getChangeCount();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures tokenizing a line shaped like an entry of /proc/net/dev with
+ * {@link ByteArrayScanner}. Each invocation consumes the whole line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ByteArrayScannerBenchmark {
+
+  private static final String LINE =
+      "wlan0 1839216487 1583624 0 0 0 0 0 0 183524 1736 0 0 0 0 0 0";
+  private static final int TOKEN_COUNT = 17;
+  /** Header of /proc/net/xt_qtaguid/stats: long tokens, to see how the scan scales with length. */
+  private static final String HEADER =
+      "idx iface acct_tag_hex uid_tag_int cnt_set rx_bytes rx_packets tx_bytes tx_packets " +
+      "rx_tcp_bytes rx_tcp_packets rx_udp_bytes rx_udp_packets rx_other_bytes rx_other_packets " +
+      "tx_tcp_bytes tx_tcp_packets tx_udp_bytes tx_udp_packets tx_other_bytes tx_other_packets\n";
+
+  private final ByteArrayScanner mScanner = new ByteArrayScanner();
+  private final ByteArrayScanner.Token mToken = new ByteArrayScanner.Token();
+  private byte[] mLine;
+  private byte[] mHeader;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    mLine = LINE.getBytes();
+    mHeader = HEADER.getBytes();
+  }
+
+  @Benchmark
+  public void nextInt(Blackhole blackhole) {
+    mScanner.reset(mLine, mLine.length).useDelimiter(' ');
+    mScanner.skip();
+    for (int i = 1; i < TOKEN_COUNT; i++) {
+      blackhole.consume(mScanner.nextInt());
+    }
+  }
+
+  @Benchmark
+  public void nextLong(Blackhole blackhole) {
+    mScanner.reset(mLine, mLine.length).useDelimiter(' ');
+    mScanner.skip();
+    for (int i = 1; i < TOKEN_COUNT; i++) {
+      blackhole.consume(mScanner.nextLong());
+    }
+  }
+
+  @Benchmark
+  public void nextToken(Blackhole blackhole) {
+    mScanner.reset(mLine, mLine.length).useDelimiter(' ');
+    for (int i = 0; i < TOKEN_COUNT; i++) {
+      blackhole.consume(mScanner.nextToken(mToken).length());
+    }
+  }
+
+  @Benchmark
+  public void skipLongTokens() {
+    mScanner.reset(mHeader, mHeader.length).useDelimiter('_');
+    while (mScanner.hasNext()) {
+      mScanner.skip();
+    }
+  }
+
+  @Benchmark
+  public void skipLine() {
+    mScanner.reset(mHeader, mHeader.length);
+    mScanner.skipLine();
+  }
+
+  @Benchmark
+  public void nextString(Blackhole blackhole) {
+    mScanner.reset(mLine, mLine.length).useDelimiter(' ');
+    for (int i = 0; i < TOKEN_COUNT; i++) {
+      blackhole.consume(mScanner.nextString());
+    }
+  }
+
+  @Benchmark
+  public boolean nextStringEquals() {
+    mScanner.reset(mLine, mLine.length).useDelimiter(' ');
+    return mScanner.nextStringEquals("wlan0");
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of feeding samples into and reading the class out of
+ * {@link ConnectionClassManager}, both uncontended and with several producer threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConnectionClassManagerBenchmark {
+
+  /**
+   * Number of distinct samples cycled through by each thread, so that the average keeps moving
+   * between bands instead of settling on a constant.
+   */
+  private static final int SAMPLE_COUNT = 1024;
+
+  /** Samples flushed per {@link ConnectionClassManager#addBandwidthBatch} call. */
+  private static final int BATCH_SIZE = 64;
+
+  @State(Scope.Benchmark)
+  public static class ManagerState {
+    ConnectionClassManager mManager;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      mManager = ConnectionClassManager.getInstance();
+      mManager.reset();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class SampleState {
+    final long[] mBytes = new long[SAMPLE_COUNT];
+    final long[] mTimesMs = new long[SAMPLE_COUNT];
+    int mIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Random random = new Random(42);
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        // Between roughly 50 kbps and 5 Mbps over 200-1200 ms windows.
+        mTimesMs[i] = 200 + random.nextInt(1000);
+        mBytes[i] = mTimesMs[i] * (6 + random.nextInt(620));
+      }
+    }
+
+    int next() {
+      int index = mIndex;
+      mIndex = (index + 1) & (SAMPLE_COUNT - 1);
+      return index;
+    }
+
+    int nextBatch() {
+      int index = mIndex;
+      mIndex = (index + BATCH_SIZE) & (SAMPLE_COUNT - 1);
+      return index;
+    }
+  }
+
+  @Benchmark
+  public void addBandwidth(ManagerState manager, SampleState samples) {
+    int i = samples.next();
+    manager.mManager.addBandwidth(samples.mBytes[i], samples.mTimesMs[i]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void addBandwidthBatch(ManagerState manager, SampleState samples) {
+    int offset = samples.nextBatch();
+    manager.mManager.addBandwidthBatch(samples.mBytes, samples.mTimesMs, offset, BATCH_SIZE);
+  }
+
+  @Benchmark
+  @Threads(8)
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void addBandwidthBatchContended(ManagerState manager, SampleState samples) {
+    int offset = samples.nextBatch();
+    manager.mManager.addBandwidthBatch(samples.mBytes, samples.mTimesMs, offset, BATCH_SIZE);
+  }
+
+  @Benchmark
+  public ConnectionQuality getCurrentBandwidthQuality(ManagerState manager) {
+    return manager.mManager.getCurrentBandwidthQuality();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void addBandwidthContended(ManagerState manager, SampleState samples) {
+    int i = samples.next();
+    manager.mManager.addBandwidth(samples.mBytes[i], samples.mTimesMs[i]);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(7)
+  public void mixedProducers(ManagerState manager, SampleState samples) {
+    int i = samples.next();
+    manager.mManager.addBandwidth(samples.mBytes[i], samples.mTimesMs[i]);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public ConnectionQuality mixedReader(ManagerState manager) {
+    return manager.mManager.getCurrentBandwidthQuality();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up a per-host manager in {@link ConnectionClassManagerRegistry} on the
+ * request path, where the key is already present.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConnectionClassManagerRegistryBenchmark {
+
+  private static final int HOST_COUNT = 32;
+
+  @State(Scope.Benchmark)
+  public static class RegistryState {
+    final String[] mHosts = new String[HOST_COUNT];
+    ConnectionClassManagerRegistry<String> mRegistry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      mRegistry = new ConnectionClassManagerRegistry<String>(HOST_COUNT);
+      for (int i = 0; i < HOST_COUNT; i++) {
+        mHosts[i] = "edge-" + i + ".example.com";
+        mRegistry.get(mHosts[i]);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int mIndex;
+  }
+
+  @Benchmark
+  public ConnectionClassManager get(RegistryState registry, ThreadState thread) {
+    thread.mIndex = (thread.mIndex + 1) & (HOST_COUNT - 1);
+    return registry.mRegistry.get(registry.mHosts[thread.mIndex]);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public ConnectionClassManager getContended(RegistryState registry, ThreadState thread) {
+    thread.mIndex = (thread.mIndex + 1) & (HOST_COUNT - 1);
+    return registry.mRegistry.get(registry.mHosts[thread.mIndex]);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Runs the {@link NetworkSimulator} over the standard traces for a grid of samples-to-change
+ * counts and hysteresis percents, and prints how fast and how steadily each combination
+ * classifies the link. Unlike the JMH benchmarks this measures behavior, not speed; run it with
+ * {@code ./gradlew :connectionclass-benchmarks:convergenceSweep}.
+ */
+public class ConvergenceSweep {
+
+  private static final double[] SAMPLES_TO_QUALITY_CHANGE = {2, 3, 5, 8, 10};
+  private static final double[] HYSTERESIS_PERCENTS = {0, 10, 20, 30};
+  private static final long DURATION_MS = 600000;
+
+  public static void main(String[] args) {
+    String[] names = {"step down", "step up", "cellular fade", "wifi handoff"};
+    LinkCapacityTrace[] traces = {
+        LinkCapacityTrace.step(3000, 300, 30000),
+        LinkCapacityTrace.step(300, 3000, 30000),
+        LinkCapacityTrace.cellularFade(3000, 0.05, 60000),
+        LinkCapacityTrace.wifiHandoff(3000, 1000, 30000, 3000),
+    };
+    System.out.println(String.format(
+        "%-14s %7s %10s %10s %10s %6s %13s %10s",
+        "trace", "samples", "hysteresis", "mean ms", "max ms", "flaps", "misclassified",
+        "rel error"));
+    for (int t = 0; t < traces.length; t++) {
+      for (double samples : SAMPLES_TO_QUALITY_CHANGE) {
+        for (double hysteresis : HYSTERESIS_PERCENTS) {
+          SimulationResult result = simulate(traces[t], samples, hysteresis);
+          System.out.println(String.format(
+              "%-14s %7.0f %9.0f%% %10d %10d %6d %12.1f%% %9.1f%%",
+              names[t],
+              samples,
+              hysteresis,
+              result.getMeanConvergenceMs(),
+              result.getMaxConvergenceMs(),
+              result.getFlaps(),
+              result.getMisclassifiedFraction() * 100,
+              result.getMeanRelativeError() * 100));
+        }
+      }
+    }
+  }
+
+  private static SimulationResult simulate(
+      LinkCapacityTrace trace,
+      double samplesToQualityChange,
+      double hysteresisPercent) {
+    ConnectionClassManager manager = new ConnectionClassManager(
+        new BandTable(
+            new double[] {
+                ConnectionClassManager.DEFAULT_POOR_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_MODERATE_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_GOOD_BANDWIDTH},
+            hysteresisPercent),
+        ConnectionClassManager.BANDWIDTH_QUALITIES,
+        samplesToQualityChange);
+    return new NetworkSimulator(manager, trace).run(DURATION_MS);
+  }
+}
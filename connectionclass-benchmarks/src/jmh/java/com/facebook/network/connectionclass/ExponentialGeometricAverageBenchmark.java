@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ExponentialGeometricAverage#addMeasurement(double)} on both sides of the
+ * cutover between the warm-up and the steady-state formula.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ExponentialGeometricAverageBenchmark {
+
+  private static final int SAMPLE_COUNT = 1024;
+  /** Measurements folded in before timing the steady state, well past the cutover. */
+  private static final int PRIMING_SAMPLES = 1000;
+  private static final double DECAY_CONSTANT = 0.05;
+  /** Measurements taking the warm-up formula: counts 0 through ceil(1 / DECAY_CONSTANT). */
+  private static final int WARM_UP_SAMPLES = 21;
+
+  private final double[] mMeasurements = new double[SAMPLE_COUNT];
+  private ExponentialGeometricAverage mAverage;
+  private ExponentialGeometricAverage mWarmUpAverage;
+  private int mIndex;
+
+  @Setup(Level.Trial)
+  public void setUpMeasurements() {
+    Random random = new Random(42);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      mMeasurements[i] = 50 + random.nextDouble() * 5000;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpAverage() {
+    mAverage = new ExponentialGeometricAverage(DECAY_CONSTANT);
+    for (int i = 0; i < PRIMING_SAMPLES; i++) {
+      mAverage.addMeasurement(mMeasurements[i & (SAMPLE_COUNT - 1)]);
+    }
+    mWarmUpAverage = new ExponentialGeometricAverage(DECAY_CONSTANT);
+  }
+
+  @Benchmark
+  public double addMeasurement() {
+    mIndex = (mIndex + 1) & (SAMPLE_COUNT - 1);
+    mAverage.addMeasurement(mMeasurements[mIndex]);
+    return mAverage.getLogAverage();
+  }
+
+  /**
+   * Starts over every {@link #WARM_UP_SAMPLES} measurements so that all of them take the
+   * warm-up formula; the reset is included, spread over the measurements.
+   */
+  @Benchmark
+  @OperationsPerInvocation(WARM_UP_SAMPLES)
+  public double addMeasurementDuringWarmUp() {
+    mWarmUpAverage.reset();
+    for (int i = 0; i < WARM_UP_SAMPLES; i++) {
+      mIndex = (mIndex + 1) & (SAMPLE_COUNT - 1);
+      mWarmUpAverage.addMeasurement(mMeasurements[mIndex]);
+    }
+    return mWarmUpAverage.getLogAverage();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one poll of {@link ProcNetDevByteCounterSource}, reading the live
+ * {@code /proc/net/dev} and a fixed copy of it. Allocation per poll should be zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ProcFileByteCounterSourceBenchmark {
+
+  private static final String PROC_NET_DEV_FIXTURE =
+      "Inter-|   Receive                                                |  Transmit\n" +
+      " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n" +
+      "    lo:  482930    5210    0    0    0     0          0         0   482930    5210    0    0    0     0       0          0\n" +
+      " wlan0: 3839216487 2583624    0    0    0     0          0         0 183524931  1736214    0    0    0     0       0          0\n" +
+      "rmnet0:12000000   10422    0    0    0     0          0         0  1200000    9120    0    0    0     0       0          0\n";
+
+  private File mFixture;
+  private ProcNetDevByteCounterSource mFixtureSource;
+  private ProcNetDevByteCounterSource mProcSource;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    mFixture = File.createTempFile("proc_net_dev", ".txt");
+    FileOutputStream out = new FileOutputStream(mFixture);
+    try {
+      out.write(PROC_NET_DEV_FIXTURE.getBytes("US-ASCII"));
+    } finally {
+      out.close();
+    }
+    mFixtureSource = new ProcNetDevByteCounterSource(mFixture.getPath());
+    mProcSource = new ProcNetDevByteCounterSource();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    mFixtureSource.close();
+    mProcSource.close();
+    mFixture.delete();
+  }
+
+  @Benchmark
+  public long fixture() {
+    return mFixtureSource.getRxBytes();
+  }
+
+  @Benchmark
+  public long procNetDev() {
+    return mProcSource.getRxBytes();
+  }
+}
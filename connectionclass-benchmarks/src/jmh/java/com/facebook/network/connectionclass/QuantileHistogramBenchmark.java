@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link QuantileHistogram} insertion, to compare with
+ * {@link ExponentialGeometricAverageBenchmark}, and quantile queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class QuantileHistogramBenchmark {
+
+  private static final int SAMPLE_COUNT = 1024;
+
+  private final double[] mMeasurements = new double[SAMPLE_COUNT];
+  private QuantileHistogram mHistogram;
+  private int mIndex;
+
+  @Setup(Level.Trial)
+  public void setUpMeasurements() {
+    Random random = new Random(42);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      mMeasurements[i] = 50 + random.nextDouble() * 5000;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpHistogram() {
+    mHistogram = new QuantileHistogram(256);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      mHistogram.addMeasurement(mMeasurements[i]);
+    }
+  }
+
+  @Benchmark
+  public long addMeasurement() {
+    mIndex = (mIndex + 1) & (SAMPLE_COUNT - 1);
+    mHistogram.addMeasurement(mMeasurements[mIndex]);
+    return mHistogram.getCount();
+  }
+
+  @Benchmark
+  public double getQuantile() {
+    return mHistogram.getQuantile(0.1);
+  }
+}
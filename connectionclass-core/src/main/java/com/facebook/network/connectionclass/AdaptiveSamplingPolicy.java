@@ -0,0 +1,134 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Decides how long a poller such as the one in DeviceBandwidthSampler waits before the next
+ * {@link BandwidthSampler#addSample()}. While samples show no real traffic the interval doubles
+ * up to a maximum, so an idle sampling session costs few wakeups; as soon as traffic shows up it
+ * halves down to a sub-second minimum, so short large transfers still get several samples.
+ * </p>
+ * <p>
+ * On top of that, wakeups are paced by a token bucket: each poll spends a token. The bucket
+ * holds a tenth of {@code maxWakeupsPerMinute} and the rest comes back over each minute, so no
+ * 60 s window ever holds more than {@code maxWakeupsPerMinute} polls. A session can start with a
+ * short burst; once the bucket is empty, intervals are stretched to just what it takes to earn
+ * the next token, i.e. spread evenly rather than in bursts followed by long gaps. The poll that
+ * opens a session spends a token too, and the bucket carries over from one session to the next.
+ * </p>
+ * <p>
+ * Not thread-safe; meant to be used from the polling thread only.
+ * </p>
+ */
+public class AdaptiveSamplingPolicy {
+
+  /*package*/ static final long DEFAULT_MIN_INTERVAL_MS = 250;
+  /*package*/ static final long DEFAULT_INITIAL_INTERVAL_MS = 1000;
+  /*package*/ static final long DEFAULT_MAX_INTERVAL_MS = 16000;
+  /*package*/ static final int DEFAULT_MAX_WAKEUPS_PER_MINUTE = 60;
+
+  private static final long MINUTE_MS = 60 * 1000;
+  private static final int BYTES_TO_BITS = 8;
+
+  private final long mMinIntervalMs;
+  private final long mInitialIntervalMs;
+  private final long mMaxIntervalMs;
+
+  // Tokens are counted in units of 1 / MINUTE_MS, so that refilling stays exact.
+  /** Units earned per ms, i.e. tokens earned per minute. */
+  private final long mRefillPerMs;
+  private final long mMaxCredit;
+  private long mCredit;
+
+  /** Interval chosen from the traffic, before any stretching. */
+  private long mIntervalMs;
+  /** Interval actually handed out last time, which the next sample covers. */
+  private long mLastIntervalMs;
+
+  public AdaptiveSamplingPolicy() {
+    this(DEFAULT_MIN_INTERVAL_MS,
+        DEFAULT_INITIAL_INTERVAL_MS,
+        DEFAULT_MAX_INTERVAL_MS,
+        DEFAULT_MAX_WAKEUPS_PER_MINUTE);
+  }
+
+  /**
+   * @param minIntervalMs Shortest interval, used during transfers.
+   * @param initialIntervalMs Interval at the start of a sampling session.
+   * @param maxIntervalMs Longest interval, reached while idle.
+   * @param maxWakeupsPerMinute Cap on the number of polls in any minute.
+   */
+  public AdaptiveSamplingPolicy(
+      long minIntervalMs,
+      long initialIntervalMs,
+      long maxIntervalMs,
+      int maxWakeupsPerMinute) {
+    if (minIntervalMs <= 0
+        || initialIntervalMs < minIntervalMs
+        || maxIntervalMs < initialIntervalMs
+        || maxWakeupsPerMinute <= 0) {
+      throw new IllegalArgumentException("Invalid sampling intervals min=" + minIntervalMs
+          + " initial=" + initialIntervalMs + " max=" + maxIntervalMs
+          + " wakeups=" + maxWakeupsPerMinute + ".");
+    }
+    mMinIntervalMs = minIntervalMs;
+    mInitialIntervalMs = initialIntervalMs;
+    mMaxIntervalMs = maxIntervalMs;
+    int burst = Math.max(1, maxWakeupsPerMinute / 10);
+    // A poll needs a whole token, so a full bucket plus just under a minute of refill covers
+    // at most burst + refill - 1 polls.
+    mRefillPerMs = maxWakeupsPerMinute + 1 - burst;
+    mMaxCredit = burst * MINUTE_MS;
+    mCredit = mMaxCredit;
+    mIntervalMs = initialIntervalMs;
+    mLastIntervalMs = initialIntervalMs;
+  }
+
+  /**
+   * Starts a new sampling session from the initial interval, for a poll made right away.
+   */
+  public void reset() {
+    // Time between sessions is unknown, so it earns nothing; the opening poll may go into debt.
+    mCredit -= MINUTE_MS;
+    mIntervalMs = mInitialIntervalMs;
+    mLastIntervalMs = mInitialIntervalMs;
+  }
+
+  /**
+   * Computes the delay until the next poll, from the sample the current poll just added.
+   * @param bytes Bytes covered by the sample, or a negative value if the poll produced none
+   *     (e.g. the first reading of a session).
+   * @return Delay until the next poll in ms.
+   */
+  public long nextIntervalMs(long bytes) {
+    if (bytes >= 0) {
+      // The sample covers the interval handed out last time.
+      double bitsPerMs = bytes * 1.0 * BYTES_TO_BITS / mLastIntervalMs;
+      if (bitsPerMs < ConnectionClassManager.BANDWIDTH_LOWER_BOUND) {
+        mIntervalMs = Math.min(mIntervalMs * 2, mMaxIntervalMs);
+      } else {
+        mIntervalMs = Math.max(mIntervalMs / 2, mMinIntervalMs);
+      }
+    }
+
+    long interval = mIntervalMs;
+    long credit = Math.min(mMaxCredit, mCredit + interval * mRefillPerMs);
+    if (credit < MINUTE_MS) {
+      // Out of budget: wait just long enough to earn the next wakeup.
+      interval += (MINUTE_MS - credit + mRefillPerMs - 1) / mRefillPerMs;
+      credit = Math.min(mMaxCredit, mCredit + interval * mRefillPerMs);
+    }
+    mCredit = credit - MINUTE_MS;
+    mLastIntervalMs = interval;
+    return interval;
+  }
+}
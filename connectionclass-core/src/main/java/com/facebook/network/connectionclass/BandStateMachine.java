@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Hysteresis logic shared by the estimators. Tracks which band of a {@link BandTable} a moving
+ * average is in, and only moves to another band once the average has stayed there for a
+ * number of samples and is well clear of the current band, so that noise around a boundary
+ * does not cause the reported class to flap.
+ * </p>
+ * <p>
+ * Bands are the tiers of the table, numbered from 0 upwards in order of increasing value.
+ * Averages are passed as natural logs, as kept by {@link ExponentialGeometricAverage}, so
+ * classifying a sample needs no transcendental call.
+ * </p>
+ * <p>
+ * Not thread-safe; callers serialize {@link #onLogAverage(double)}, while
+ * {@link #getCurrentBand()} and {@link #isChangePending()} may be read from any thread.
+ * </p>
+ */
+class BandStateMachine {
+
+  /** Band of an average that is not known yet. */
+  static final int UNKNOWN_BAND = -1;
+
+  /** Results of {@link #onLogAverage(double)}. */
+  static final int NO_CHANGE = 0;
+  static final int CHANGE_STARTED = 1;
+  static final int CHANGE_ABORTED = 2;
+  static final int CHANGE_COMMITTED = 3;
+
+  private final BandTable mBandTable;
+  private final double mSamplesToChange;
+
+  private volatile int mCurrentBand = UNKNOWN_BAND;
+  /** Volatile so that {@link #isChangePending()} can be read from any thread. */
+  private volatile boolean mInitiateStateChange;
+  private int mNextBand;
+  private int mSampleCounter;
+
+  /**
+   * @param bandTable Bands and their hysteresis.
+   * @param samplesToChange Samples the average has to stay in a new band before moving there.
+   */
+  BandStateMachine(BandTable bandTable, double samplesToChange) {
+    mBandTable = bandTable;
+    mSamplesToChange = samplesToChange;
+  }
+
+  /**
+   * @return The number of bands.
+   */
+  int getBandCount() {
+    return mBandTable.getTierCount();
+  }
+
+  /**
+   * @param logAverage Natural log of the average.
+   * @return The band the average falls in, or {@link #UNKNOWN_BAND} for NaN.
+   */
+  int mapBand(double logAverage) {
+    if (Double.isNaN(logAverage)) {
+      return UNKNOWN_BAND;
+    }
+    return mBandTable.getTierOfLog(logAverage);
+  }
+
+  /**
+   * @return The band last moved to, or {@link #UNKNOWN_BAND}.
+   */
+  int getCurrentBand() {
+    return mCurrentBand;
+  }
+
+  /**
+   * @return True while the average is in another band than the current one, but has not yet
+   *     stayed there long enough to move.
+   */
+  boolean isChangePending() {
+    return mInitiateStateChange;
+  }
+
+  /**
+   * Advances the state machine after a sample has been added to the average.
+   * @param logAverage Natural log of the moving average including the new sample.
+   * @return {@link #CHANGE_COMMITTED} if the current band changed, {@link #CHANGE_STARTED} or
+   *     {@link #CHANGE_ABORTED} if a change started or was given up, {@link #NO_CHANGE}
+   *     otherwise.
+   */
+  int onLogAverage(double logAverage) {
+    if (mInitiateStateChange) {
+      int result = NO_CHANGE;
+      mSampleCounter += 1;
+      if (mapBand(logAverage) != mNextBand) {
+        mInitiateStateChange = false;
+        mSampleCounter = 1;
+        result = CHANGE_ABORTED;
+      }
+      if (mSampleCounter >= mSamplesToChange && significantlyOutsideCurrentBand(logAverage)) {
+        mInitiateStateChange = false;
+        mSampleCounter = 1;
+        mCurrentBand = mNextBand;
+        return CHANGE_COMMITTED;
+      }
+      return result;
+    }
+
+    int band = mapBand(logAverage);
+    if (mCurrentBand != band) {
+      mInitiateStateChange = true;
+      mNextBand = band;
+      return CHANGE_STARTED;
+    }
+    return NO_CHANGE;
+  }
+
+  /**
+   * Moves straight to the band of an average, bypassing the sample count and the hysteresis,
+   * as when a change of the link is certain.
+   * @param logAverage Natural log of the new average.
+   * @return {@link #CHANGE_COMMITTED} if the current band changed, {@link #CHANGE_ABORTED} if a
+   *     change to another band was in progress, {@link #NO_CHANGE} otherwise.
+   */
+  int jumpTo(double logAverage) {
+    int band = mapBand(logAverage);
+    boolean wasPending = mInitiateStateChange;
+    int previousBand = mCurrentBand;
+    restore(band);
+    if (band != previousBand) {
+      return CHANGE_COMMITTED;
+    }
+    return wasPending ? CHANGE_ABORTED : NO_CHANGE;
+  }
+
+  /**
+   * Moves straight to a band, as when restoring saved state, dropping any transition in
+   * progress.
+   */
+  void restore(int band) {
+    mCurrentBand = band;
+    mInitiateStateChange = false;
+    mSampleCounter = 0;
+  }
+
+  /**
+   * Forgets the current band and any transition in progress.
+   */
+  void reset() {
+    mCurrentBand = UNKNOWN_BAND;
+    mInitiateStateChange = false;
+    mSampleCounter = 0;
+  }
+
+  private boolean significantlyOutsideCurrentBand(double logAverage) {
+    int currentBand = mCurrentBand;
+    if (currentBand == UNKNOWN_BAND) {
+      // If the current band is unknown, then changing is always valid.
+      return true;
+    }
+    return mBandTable.isSignificantlyOutside(currentBand, logAverage);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Immutable table of tiers used to classify a moving average, such as the rungs of an adaptive
+ * bitrate ladder. Tier {@code i} covers averages from the upper bound of tier {@code i - 1} up
+ * to its own upper bound; tier 0 starts at 0 and the last tier is unbounded.
+ * </p>
+ * <p>
+ * Each tier has its own hysteresis: the average has to be that many percent past the edge of
+ * the current tier before the tier changes. Bounds are kept as natural logs and classification
+ * is a binary search, so tables with many tiers cost little more than the default four.
+ * </p>
+ */
+public final class BandTable {
+
+  /** Natural log of the upper bound of every tier but the last. Ascending. */
+  private final double[] mLogUpperBounds;
+  /** Per tier, natural logs of the multipliers applied to its top and bottom edges. */
+  private final double[] mLogHysteresisTop;
+  private final double[] mLogHysteresisBottom;
+
+  /**
+   * @param upperBounds Upper bound of every tier but the last, strictly ascending and positive.
+   * @param hysteresisPercent Hysteresis of every tier, in percent.
+   */
+  public BandTable(double[] upperBounds, double hysteresisPercent) {
+    this(upperBounds, fill(upperBounds.length + 1, hysteresisPercent));
+  }
+
+  /**
+   * @param upperBounds Upper bound of every tier but the last, strictly ascending and positive.
+   * @param hysteresisPercents Hysteresis of each tier, in percent; one more entry than
+   *     {@code upperBounds}.
+   */
+  public BandTable(double[] upperBounds, double[] hysteresisPercents) {
+    if (hysteresisPercents.length != upperBounds.length + 1) {
+      throw new IllegalArgumentException("Expected " + (upperBounds.length + 1)
+          + " hysteresis percents, got " + hysteresisPercents.length + ".");
+    }
+    int tierCount = hysteresisPercents.length;
+    mLogUpperBounds = new double[upperBounds.length];
+    mLogHysteresisTop = new double[tierCount];
+    mLogHysteresisBottom = new double[tierCount];
+    for (int i = 0; i < upperBounds.length; i++) {
+      if (!(upperBounds[i] > 0) || Double.isInfinite(upperBounds[i])
+          || (i > 0 && upperBounds[i] <= upperBounds[i - 1])) {
+        throw new IllegalArgumentException("Upper bounds must be positive and ascending.");
+      }
+      mLogUpperBounds[i] = Math.log(upperBounds[i]);
+    }
+    for (int i = 0; i < tierCount; i++) {
+      double percent = hysteresisPercents[i];
+      if (!(percent >= 0 && percent < 100)) {
+        throw new IllegalArgumentException("Invalid hysteresis percent " + percent + ".");
+      }
+      mLogHysteresisTop[i] = Math.log(100.0 / (100.0 - percent));
+      mLogHysteresisBottom[i] = Math.log((100.0 - percent) / 100.0);
+    }
+  }
+
+  /**
+   * @return The number of tiers, one more than the number of upper bounds.
+   */
+  public int getTierCount() {
+    return mLogUpperBounds.length + 1;
+  }
+
+  /**
+   * @return The tier a value falls in.
+   */
+  public int getTier(double value) {
+    return getTierOfLog(Math.log(value));
+  }
+
+  /**
+   * @param logValue Natural log of the value, not NaN.
+   * @return The tier the value falls in.
+   */
+  /*package*/ int getTierOfLog(double logValue) {
+    // First upper bound above the value.
+    int low = 0;
+    int high = mLogUpperBounds.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (logValue < mLogUpperBounds[middle]) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return Whether a value, as a natural log, is far enough outside a tier to leave it.
+   */
+  /*package*/ boolean isSignificantlyOutside(int tier, double logValue) {
+    double logBottomOfTier = tier == 0
+        ? Double.NEGATIVE_INFINITY
+        : mLogUpperBounds[tier - 1];
+    double logTopOfTier = tier == mLogUpperBounds.length
+        ? Double.POSITIVE_INFINITY
+        : mLogUpperBounds[tier];
+    if (logValue > logTopOfTier) {
+      return logValue > logTopOfTier + mLogHysteresisTop[tier];
+    }
+    return logValue < logBottomOfTier + mLogHysteresisBottom[tier];
+  }
+
+  private static double[] fill(int length, double value) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = value;
+    }
+    return values;
+  }
+}
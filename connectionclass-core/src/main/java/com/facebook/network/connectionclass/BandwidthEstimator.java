@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Turns bandwidth samples into the estimate a {@link ConnectionClassManager} classifies. The
+ * default is an exponential geometric moving average; {@link WindowedMedianEstimator},
+ * {@link HampelEstimator} and {@link KalmanEstimator} trade some responsiveness for robustness
+ * to outliers such as a response served from a local cache.
+ * </p>
+ * <p>
+ * Estimates are exchanged as natural logs, which is what the hysteresis compares against its
+ * thresholds. A manager only calls its estimator from one thread at a time, so implementations
+ * need not be thread-safe.
+ * </p>
+ */
+public interface BandwidthEstimator {
+
+  /**
+   * @param measurement Bandwidth in kbps, always positive.
+   */
+  void addMeasurement(double measurement);
+
+  /**
+   * @return The natural log of the estimate in kbps, or NaN if no measurement has been added.
+   */
+  double getLogAverage();
+
+  /**
+   * @return The number of measurements added since the last reset.
+   */
+  int getCount();
+
+  /**
+   * Restores an estimate saved from {@link #getLogAverage()} and {@link #getCount()}, as if
+   * that many measurements had led to it.
+   */
+  void restore(double logAverage, int count);
+
+  /**
+   * Forgets every measurement.
+   */
+  void reset();
+
+  /**
+   * Creates the estimators of a manager; it needs one for downloads and one for uploads.
+   */
+  interface Factory {
+    BandwidthEstimator create();
+  }
+}
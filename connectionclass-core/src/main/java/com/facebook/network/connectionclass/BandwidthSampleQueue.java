@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of bandwidth samples.
+ *
+ * <p>
+ * Any number of threads may {@link #offer(double)} concurrently. Only one thread at a time may
+ * {@link #poll()}; {@link ConnectionClassManager} guarantees this by draining under a flag.
+ * Samples are stored as primitives so publishing one does not allocate.
+ * </p>
+ */
+class BandwidthSampleQueue {
+  private final int mMask;
+  private final double[] mSamples;
+  /**
+   * Per-slot sequence numbers. A slot is free for the producer at position {@code p} when its
+   * sequence equals {@code p}, and holds a published sample when it equals {@code p + 1}.
+   */
+  private final AtomicLongArray mSequences;
+  private final AtomicLong mTail = new AtomicLong();
+  /** Only written by the draining thread. */
+  private volatile long mHead;
+
+  /**
+   * @param capacity Maximum number of pending samples, rounded up to a power of two.
+   */
+  public BandwidthSampleQueue(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    mMask = size - 1;
+    mSamples = new double[size];
+    mSequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      mSequences.set(i, i);
+    }
+  }
+
+  /**
+   * Publishes a sample.
+   * @return True if the sample was queued, false if the queue is full.
+   */
+  public boolean offer(double sample) {
+    while (true) {
+      long position = mTail.get();
+      int index = (int) position & mMask;
+      long sequence = mSequences.get(index);
+      if (sequence == position) {
+        if (mTail.compareAndSet(position, position + 1)) {
+          mSamples[index] = sample;
+          mSequences.set(index, position + 1);
+          return true;
+        }
+      } else if (sequence < position) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest published sample. Must only be called by one thread at a time.
+   * @return The sample, or {@link Double#NaN} if no published sample is available.
+   */
+  public double poll() {
+    long position = mHead;
+    int index = (int) position & mMask;
+    if (mSequences.get(index) != position + 1) {
+      return Double.NaN;
+    }
+    double sample = mSamples[index];
+    mSequences.lazySet(index, position + mMask + 1);
+    mHead = position + 1;
+    return sample;
+  }
+
+  /**
+   * Discards all published samples. Must only be called by the draining thread.
+   */
+  public void clear() {
+    while (hasPending()) {
+      poll();
+    }
+  }
+
+  /**
+   * @return True if {@link #poll()} would currently return a sample.
+   */
+  public boolean hasPending() {
+    long position = mHead;
+    return mSequences.get((int) position & mMask) == position + 1;
+  }
+}
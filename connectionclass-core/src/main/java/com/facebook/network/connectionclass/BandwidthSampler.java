@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Turns cumulative byte counters into bandwidth samples for a {@link ConnectionClassManager}.
+ * Each call to {@link #addSample()} reads the received and sent byte counters and the clock once,
+ * and adds the differences since the previous reading as download and upload samples.
+ * </p>
+ * <p>
+ * This class does not poll on its own: whoever drives it calls {@link #addSample()}
+ * periodically between a {@link #startSampling()} that returns true and a
+ * {@link #stopSampling()} that returns true.
+ * </p>
+ */
+public class BandwidthSampler {
+
+  private final ConnectionClassManager mConnectionClassManager;
+  private final ByteCounterSource mByteCounterSource;
+  private final Clock mClock;
+
+  private final AtomicInteger mSamplingCounter = new AtomicInteger();
+
+  private volatile MetricsSink mMetricsSink;
+
+  private long mLastTimeReading;
+  private long mPreviousRxBytes = -1;
+  private long mPreviousTxBytes = -1;
+
+  public BandwidthSampler(
+      ConnectionClassManager connectionClassManager,
+      ByteCounterSource byteCounterSource,
+      Clock clock) {
+    mConnectionClassManager = connectionClassManager;
+    mByteCounterSource = byteCounterSource;
+    mClock = clock;
+  }
+
+  /**
+   * Method call to start sampling for download and upload bandwidth.
+   * @return True if this call started a sampling session, meaning polling should begin.
+   */
+  public boolean startSampling() {
+    if (mSamplingCounter.getAndIncrement() == 0) {
+      mLastTimeReading = mClock.elapsedRealtime();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Ends one caller's interest in sampling.
+   * @return True if this was the last caller, meaning polling should stop and
+   * {@link #addFinalSample()} should be called.
+   */
+  public boolean stopSampling() {
+    return mSamplingCounter.decrementAndGet() == 0;
+  }
+
+  /**
+   * Method for polling for the change in total bytes since last update and
+   * adding it to the ConnectionClassManager.
+   * @return The number of bytes received and sent during the sample, or -1 if there was no
+   *     previous reading.
+   */
+  public long addSample() {
+    MetricsSink sink = mMetricsSink;
+    if (sink == null) {
+      return addSampleUnmetered();
+    }
+    long startNs = System.nanoTime();
+    long bytes = addSampleUnmetered();
+    sink.onPoll(System.nanoTime() - startNs);
+    return bytes;
+  }
+
+  private long addSampleUnmetered() {
+    long newRxBytes = mByteCounterSource.getRxBytes();
+    long newTxBytes = mByteCounterSource.getTxBytes();
+    long rxDiff = newRxBytes - mPreviousRxBytes;
+    long txDiff = newTxBytes - mPreviousTxBytes;
+    boolean rxAdded = mPreviousRxBytes >= 0;
+    boolean txAdded = mPreviousTxBytes >= 0;
+    if (rxAdded || txAdded) {
+      synchronized (this) {
+        long curTimeReading = mClock.elapsedRealtime();
+        long timeInMs = curTimeReading - mLastTimeReading;
+        if (rxAdded) {
+          mConnectionClassManager.addBandwidth(rxDiff, timeInMs);
+        }
+        if (txAdded) {
+          mConnectionClassManager.addUploadBandwidth(txDiff, timeInMs);
+        }
+
+        mLastTimeReading = curTimeReading;
+      }
+    }
+    mPreviousRxBytes = newRxBytes;
+    mPreviousTxBytes = newTxBytes;
+    if (!rxAdded && !txAdded) {
+      return -1;
+    }
+    return (rxAdded ? rxDiff : 0) + (txAdded ? txDiff : 0);
+  }
+
+  /**
+   * Resets previously read byte count after recording a sample, so that
+   * we don't count bytes downloaded in between sampling sessions.
+   */
+  public void addFinalSample() {
+    addSample();
+    mPreviousRxBytes = -1;
+    mPreviousTxBytes = -1;
+  }
+
+  /**
+   * Attaches a sink for the poll count and latency of this sampler.
+   * @param sink Sink to report to, or null to stop reporting.
+   */
+  public void setMetricsSink(MetricsSink sink) {
+    mMetricsSink = sink;
+  }
+
+  /**
+   * @return True if there are still threads which are sampling, false otherwise.
+   */
+  public boolean isSampling() {
+    return (mSamplingCounter.get() != 0);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Polls a {@link BandwidthSampler} on a {@link ScheduledExecutorService} while at least one
+ * sampling session is open. Nothing is scheduled before the first {@link #startSampling()}.
+ * </p>
+ * <p>
+ * Unless told otherwise, every loop shares one scheduler whose single thread is only started
+ * by the first poll and exits after a few idle seconds, so an app that never samples never
+ * pays for it. Any other scheduler can be supplied instead, e.g. one the app already runs
+ * periodic work on, or one backed by virtual threads on a JVM that has them.
+ * </p>
+ */
+public class BandwidthSamplingLoop {
+
+  /** Time between polls in ms, unless an {@link AdaptiveSamplingPolicy} is set. */
+  /*package*/ static final long DEFAULT_SAMPLE_INTERVAL_MS = 1000;
+
+  /** Idle time after which the thread of the shared scheduler exits. */
+  private static final long SHARED_SCHEDULER_KEEP_ALIVE_MS = 10000;
+
+  private final BandwidthSampler mBandwidthSampler;
+  /** Guards sessions, so that a poll never overlaps the final sample of a session. */
+  private final Object mLock = new Object();
+
+  private volatile ScheduledExecutorService mScheduler;
+  private volatile AdaptiveSamplingPolicy mSamplingPolicy;
+  /** The open session; guarded by mLock. */
+  private Session mSession;
+
+  // Created on first use.
+  private static class SharedSchedulerHolder {
+    static final ScheduledExecutorService instance = createSharedScheduler();
+  }
+
+  public BandwidthSamplingLoop(BandwidthSampler bandwidthSampler) {
+    mBandwidthSampler = bandwidthSampler;
+  }
+
+  /**
+   * Sets the scheduler polls run on. Takes effect from the next sampling session.
+   * @param scheduler Scheduler to poll on, or null for the shared one.
+   */
+  public void setScheduler(ScheduledExecutorService scheduler) {
+    mScheduler = scheduler;
+  }
+
+  /**
+   * Switches between polling at a fixed rate (the default) and adaptive polling, which backs off
+   * while nothing is transferred and polls more often during transfers. Takes effect from the
+   * next sampling session.
+   * @param samplingPolicy Policy deciding the delay between polls, or null for a fixed rate.
+   */
+  public void setSamplingPolicy(AdaptiveSamplingPolicy samplingPolicy) {
+    mSamplingPolicy = samplingPolicy;
+  }
+
+  /**
+   * Opens a sampling session, starting to poll if no other session is open.
+   */
+  public void startSampling() {
+    synchronized (mLock) {
+      if (mBandwidthSampler.startSampling()) {
+        ScheduledExecutorService scheduler = mScheduler;
+        AdaptiveSamplingPolicy policy = mSamplingPolicy;
+        if (policy != null) {
+          policy.reset();
+        }
+        mSession = new Session(
+            scheduler == null ? SharedSchedulerHolder.instance : scheduler,
+            policy);
+        mSession.schedule(0);
+      }
+    }
+  }
+
+  /**
+   * Closes a sampling session. Once the last one is closed, polling stops after a final
+   * sample, so that bytes transferred between sessions are not counted.
+   */
+  public void stopSampling() {
+    synchronized (mLock) {
+      if (mBandwidthSampler.stopSampling()) {
+        if (mSession != null) {
+          mSession.cancel();
+          mSession = null;
+        }
+        mBandwidthSampler.addFinalSample();
+      }
+    }
+  }
+
+  /**
+   * @return True if there are still threads which are sampling, false otherwise.
+   */
+  public boolean isSampling() {
+    return mBandwidthSampler.isSampling();
+  }
+
+  private static ScheduledExecutorService createSharedScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+        1,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ConnectionClassSampler");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    scheduler.setKeepAliveTime(SHARED_SCHEDULER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    return scheduler;
+  }
+
+  /**
+   * Polls of one session, each scheduling the next.
+   */
+  private class Session implements Runnable {
+    private final ScheduledExecutorService mSessionScheduler;
+    private final AdaptiveSamplingPolicy mSessionPolicy;
+    // Guarded by mLock.
+    private ScheduledFuture<?> mNextPoll;
+    private boolean mCancelled;
+
+    Session(ScheduledExecutorService scheduler, AdaptiveSamplingPolicy policy) {
+      mSessionScheduler = scheduler;
+      mSessionPolicy = policy;
+    }
+
+    @Override
+    public void run() {
+      synchronized (mLock) {
+        if (mCancelled) {
+          return;
+        }
+        long bytes = -1;
+        try {
+          bytes = mBandwidthSampler.addSample();
+        } finally {
+          // A poll that throws must not end the session: the next one may well succeed.
+          schedule(mSessionPolicy == null
+              ? DEFAULT_SAMPLE_INTERVAL_MS
+              : mSessionPolicy.nextIntervalMs(bytes));
+        }
+      }
+    }
+
+    void schedule(long delayMs) {
+      mNextPoll = mSessionScheduler.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    void cancel() {
+      mCancelled = true;
+      if (mNextPoll != null) {
+        mNextPoll.cancel(false);
+        if (mSessionScheduler instanceof ThreadPoolExecutor) {
+          // Otherwise the cancelled poll stays queued until it is due. setRemoveOnCancelPolicy()
+          // would do this, but needs API 21.
+          ((ThreadPoolExecutor) mSessionScheduler).purge();
+        }
+      }
+    }
+  }
+}
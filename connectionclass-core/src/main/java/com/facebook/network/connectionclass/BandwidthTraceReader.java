@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams the records of a trace written by {@link BandwidthTraceWriter}, without allocating
+ * per record:
+ *
+ * <pre>
+ * while (reader.next()) {
+ *   manager.addBandwidth(reader.getBytes(), reader.getTimeInMs());
+ * }
+ * </pre>
+ */
+public class BandwidthTraceReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final InputStream mIn;
+  private final byte[] mBuffer = new byte[BUFFER_SIZE];
+  private int mPosition;
+  private int mLength;
+
+  private long mTimestampMs;
+  private long mBytes;
+  private long mTimeInMs;
+
+  /**
+   * @param in Stream positioned at the start of a trace; closed with this reader.
+   * @throws IOException If the stream does not start with a trace header.
+   */
+  public BandwidthTraceReader(InputStream in) throws IOException {
+    mIn = in;
+    for (int i = 0; i < BandwidthTraceWriter.MAGIC.length; i++) {
+      if (!fill() || mBuffer[mPosition++] != BandwidthTraceWriter.MAGIC[i]) {
+        throw new IOException("Not a bandwidth trace.");
+      }
+    }
+    if (!fill() || mBuffer[mPosition++] != BandwidthTraceWriter.VERSION) {
+      throw new IOException("Unsupported bandwidth trace version.");
+    }
+  }
+
+  /**
+   * Moves to the next record.
+   * @return False at the end of the trace.
+   * @throws EOFException If the trace ends in the middle of a record.
+   */
+  public boolean next() throws IOException {
+    if (!fill()) {
+      return false;
+    }
+    mTimestampMs += readVarLong();
+    mBytes = readVarLong();
+    mTimeInMs = readVarLong();
+    return true;
+  }
+
+  /**
+   * @return When the current call was made, in ms of the recording clock.
+   */
+  public long getTimestampMs() {
+    return mTimestampMs;
+  }
+
+  /**
+   * @return The bytes passed to the current call.
+   */
+  public long getBytes() {
+    return mBytes;
+  }
+
+  /**
+   * @return The time in ms passed to the current call.
+   */
+  public long getTimeInMs() {
+    return mTimeInMs;
+  }
+
+  @Override
+  public void close() throws IOException {
+    mIn.close();
+  }
+
+  /**
+   * Makes sure at least one byte is buffered.
+   * @return False at the end of the stream.
+   */
+  private boolean fill() throws IOException {
+    if (mPosition < mLength) {
+      return true;
+    }
+    int read;
+    do {
+      read = mIn.read(mBuffer, 0, BUFFER_SIZE);
+    } while (read == 0);
+    if (read < 0) {
+      return false;
+    }
+    mPosition = 0;
+    mLength = read;
+    return true;
+  }
+
+  private long readVarLong() throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!fill()) {
+        throw new EOFException("Truncated bandwidth trace.");
+      }
+      byte b = mBuffer[mPosition++];
+      zigzag |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Malformed bandwidth trace.");
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * Replays a trace written by {@link BandwidthTraceWriter} through a manager, as fast as the
+ * manager takes samples, and reports when its ConnectionClass changed. Replaying a field trace
+ * through managers with different {@link BandTable}s reproduces or compares classifications
+ * offline.
+ * </p>
+ * <p>
+ * The manager should be fresh and not shared: it is replayed into from the calling thread and
+ * its listener executor is replaced for the duration of the replay, then restored.
+ * </p>
+ */
+public class BandwidthTraceReplayer {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private BandwidthTraceReplayer() {}
+
+  /**
+   * Replays a whole trace.
+   * @param in Stream positioned at the start of a trace; not closed.
+   * @param manager Manager to add the samples to.
+   * @return The changes of ConnectionClass during the replay.
+   */
+  public static QualityTimeline replay(InputStream in, ConnectionClassManager manager)
+      throws IOException {
+    final BandwidthTraceReader reader = new BandwidthTraceReader(in);
+    final TimelineBuilder timeline = new TimelineBuilder();
+    ConnectionClassManager.ConnectionClassChangeListener listener =
+        new ConnectionClassManager.ConnectionClassChangeListener() {
+          @Override
+          public void onConnectionClassChange(ConnectionClassChangeEvent event) {
+            timeline.add(reader.getTimestampMs(), event.getTier(), event.getQuality());
+          }
+        };
+    // Listeners must run before the next sample, so that changes are attributed to it.
+    Executor previousExecutor = manager.getListenerExecutor();
+    manager.setListenerExecutor(ConnectionClassManager.SAME_THREAD_EXECUTOR);
+    manager.registerChangeListener(listener);
+    try {
+      while (reader.next()) {
+        manager.addBandwidth(reader.getBytes(), reader.getTimeInMs());
+        timeline.mSampleCount++;
+      }
+    } finally {
+      manager.removeChangeListener(listener);
+      manager.setListenerExecutor(previousExecutor);
+    }
+    return timeline.build();
+  }
+
+  private static class TimelineBuilder {
+    long[] mTimestampsMs = new long[INITIAL_CAPACITY];
+    long[] mSampleIndexes = new long[INITIAL_CAPACITY];
+    int[] mTiers = new int[INITIAL_CAPACITY];
+    ConnectionQuality[] mQualities = new ConnectionQuality[INITIAL_CAPACITY];
+    int mChangeCount;
+    long mSampleCount;
+
+    void add(long timestampMs, int tier, ConnectionQuality quality) {
+      if (mChangeCount == mTiers.length) {
+        int capacity = mChangeCount * 2;
+        mTimestampsMs = Arrays.copyOf(mTimestampsMs, capacity);
+        mSampleIndexes = Arrays.copyOf(mSampleIndexes, capacity);
+        mTiers = Arrays.copyOf(mTiers, capacity);
+        mQualities = Arrays.copyOf(mQualities, capacity);
+      }
+      mTimestampsMs[mChangeCount] = timestampMs;
+      mSampleIndexes[mChangeCount] = mSampleCount;
+      mTiers[mChangeCount] = tier;
+      mQualities[mChangeCount] = quality;
+      mChangeCount++;
+    }
+
+    QualityTimeline build() {
+      return new QualityTimeline(
+          mTimestampsMs, mSampleIndexes, mTiers, mQualities, mChangeCount, mSampleCount);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Records every {@link ConnectionClassManager#addBandwidth(long, long)} call, with the time it
+ * was made, to a compact binary trace that {@link BandwidthTraceReader} and
+ * {@link BandwidthTraceReplayer} can read back. Attach it with
+ * {@link ConnectionClassManager#setTraceWriter(BandwidthTraceWriter)}.
+ * </p>
+ * <p>
+ * After a 5 byte header, each call is a record of three zigzag varints: the time since the
+ * previous record in ms, the bytes and the time in ms passed to addBandwidth. Typical records
+ * take 4 to 6 bytes. Calls are recorded before the garbage filter, so a replay goes through
+ * exactly the same filtering.
+ * </p>
+ */
+public class BandwidthTraceWriter implements Closeable, Flushable {
+
+  /*package*/ static final byte[] MAGIC = {'C', 'C', 'T', 'R'};
+  /*package*/ static final int VERSION = 1;
+
+  private static final int BUFFER_SIZE = 8192;
+  /** Longest record: three 10 byte varints. */
+  private static final int MAX_RECORD_SIZE = 30;
+  /** Records held between flushes before an appender has to encode them. */
+  private static final int QUEUE_SIZE = 1024;
+  private static final int FIELDS = 3;
+
+  private final OutputStream mOut;
+  private final Clock mClock;
+
+  // Lock-free queue of records, as in BandwidthSampleQueue: the slot for the producer at
+  // position p is free when its sequence equals p, and holds a record when it equals p + 1.
+  private final long[] mRecords = new long[QUEUE_SIZE * FIELDS];
+  private final AtomicLongArray mSequences = new AtomicLongArray(QUEUE_SIZE);
+  private final AtomicLong mTail = new AtomicLong();
+  /** Held by the one thread encoding records; guards everything below. */
+  private final AtomicBoolean mDraining = new AtomicBoolean();
+  private long mHead;
+
+  private final byte[] mBuffer = new byte[BUFFER_SIZE];
+  private int mLength;
+  private long mLastTimestampMs;
+  private IOException mError;
+
+  /**
+   * @param out Stream to write the trace to; closed with this writer.
+   * @param clock Clock timestamping the records.
+   */
+  public BandwidthTraceWriter(OutputStream out, Clock clock) throws IOException {
+    mOut = out;
+    mClock = clock;
+    for (int i = 0; i < QUEUE_SIZE; i++) {
+      mSequences.set(i, i);
+    }
+    out.write(MAGIC);
+    out.write(VERSION);
+  }
+
+  /**
+   * Appends a call to the trace, timestamped now. Called from sampling threads, so records are
+   * only queued, without locking, and encoded and written by {@link #flush()}; only when the
+   * queue is full does an appender write them out itself. Sampling threads cannot handle I/O
+   * errors either: the first error is kept and thrown by {@link #flush()} or {@link #close()},
+   * and later records are dropped.
+   */
+  public void append(long bytes, long timeInMs) {
+    append(mClock.elapsedRealtime(), bytes, timeInMs);
+  }
+
+  /*package*/ void append(long timestampMs, long bytes, long timeInMs) {
+    while (!offer(timestampMs, bytes, timeInMs)) {
+      if (mDraining.compareAndSet(false, true)) {
+        try {
+          drain();
+        } finally {
+          mDraining.set(false);
+        }
+      } else {
+        // Another thread is emptying the queue.
+        Thread.yield();
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    acquireDrainFlag();
+    try {
+      drain();
+      writeBuffer();
+      if (mError != null) {
+        throw mError;
+      }
+      mOut.flush();
+    } finally {
+      mDraining.set(false);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      mOut.close();
+    }
+  }
+
+  private boolean offer(long timestampMs, long bytes, long timeInMs) {
+    while (true) {
+      long position = mTail.get();
+      int index = (int) position & (QUEUE_SIZE - 1);
+      long sequence = mSequences.get(index);
+      if (sequence == position) {
+        if (mTail.compareAndSet(position, position + 1)) {
+          int offset = index * FIELDS;
+          mRecords[offset] = timestampMs;
+          mRecords[offset + 1] = bytes;
+          mRecords[offset + 2] = timeInMs;
+          mSequences.set(index, position + 1);
+          return true;
+        }
+      } else if (sequence < position) {
+        return false;
+      }
+    }
+  }
+
+  private void acquireDrainFlag() {
+    while (!mDraining.compareAndSet(false, true)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Encodes all queued records into the buffer, writing it out whenever it fills up. Only
+   * called while holding the drain flag.
+   */
+  private void drain() {
+    while (true) {
+      long position = mHead;
+      int index = (int) position & (QUEUE_SIZE - 1);
+      if (mSequences.get(index) != position + 1) {
+        return;
+      }
+      int offset = index * FIELDS;
+      encode(mRecords[offset], mRecords[offset + 1], mRecords[offset + 2]);
+      mSequences.lazySet(index, position + QUEUE_SIZE);
+      mHead = position + 1;
+    }
+  }
+
+  private void encode(long timestampMs, long bytes, long timeInMs) {
+    if (mError != null) {
+      return;
+    }
+    if (mLength + MAX_RECORD_SIZE > BUFFER_SIZE && !writeBuffer()) {
+      return;
+    }
+    mLength = putVarLong(mBuffer, mLength, timestampMs - mLastTimestampMs);
+    mLength = putVarLong(mBuffer, mLength, bytes);
+    mLength = putVarLong(mBuffer, mLength, timeInMs);
+    mLastTimestampMs = timestampMs;
+  }
+
+  private boolean writeBuffer() {
+    if (mError != null) {
+      return false;
+    }
+    try {
+      mOut.write(mBuffer, 0, mLength);
+      mLength = 0;
+      return true;
+    } catch (IOException e) {
+      mError = e;
+      return false;
+    }
+  }
+
+  /**
+   * Writes a zigzag varint.
+   * @return The index after the varint.
+   */
+  private static int putVarLong(byte[] buffer, int index, long value) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7fL) != 0) {
+      buffer[index++] = (byte) ((zigzag & 0x7f) | 0x80);
+      zigzag >>>= 7;
+    }
+    buffer[index++] = (byte) zigzag;
+    return index;
+  }
+}
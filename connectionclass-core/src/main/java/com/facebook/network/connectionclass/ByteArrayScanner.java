@@ -0,0 +1,321 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nullable;
+import java.util.NoSuchElementException;
+
+class ByteArrayScanner {
+  private @Nullable byte[] mData;
+  private int mCurrentOffset;
+  private int mTotalLength;
+  private char mDelimiter;
+  private boolean mDelimiterSet;
+
+  public ByteArrayScanner reset(byte[] buffer, int length) {
+    mData = buffer;
+    mCurrentOffset = 0;
+    mTotalLength = length;
+    mDelimiterSet = false;
+    return this;
+  }
+
+  public ByteArrayScanner useDelimiter(char delimiter) {
+    throwIfNotReset();
+    mDelimiter = delimiter;
+    mDelimiterSet = true;
+    return this;
+  }
+
+  private void throwIfNotReset() {
+    if (mData == null) {
+      throw new IllegalStateException("Must call reset first");
+    }
+  }
+
+  private void throwIfDelimiterNotSet() {
+    if (!mDelimiterSet) {
+      throw new IllegalStateException("Must call useDelimiter first");
+    }
+  }
+
+  /**
+   * @return The next token, parsed as a string.
+   * @throws NoSuchElementException
+   */
+  public String nextString()
+      throws NoSuchElementException {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    int offset = mCurrentOffset;
+    int length = advance();
+    return new String(mData, offset, length);
+  }
+
+  /**
+   * Matches the next token with a string.
+   * @param str String to match the next token with.
+   * @return True if the next token matches, false otherwise.
+   * @throws NoSuchElementException
+   */
+  public boolean nextStringEquals(String str)
+      throws NoSuchElementException {
+    int offset = mCurrentOffset;
+    int length = advance();
+    if (str.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < str.length(); i++) {
+      if (str.charAt(i) != mData[offset]) {
+        return false;
+      }
+      offset++;
+    }
+    return true;
+  }
+
+  /**
+   * @return The next token, parsed as an integer.
+   * @throws NoSuchElementException
+   */
+  public int nextInt()
+      throws NoSuchElementException{
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    int offset = mCurrentOffset;
+    int length = advance();
+    long value = parseLong(
+        mData,
+        offset,
+        offset + length);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Int out of range in buffer at " + offset + ".");
+    }
+    return (int) value;
+  }
+
+  /**
+   * @return The next token, parsed as a signed decimal long.
+   * @throws NoSuchElementException
+   * @throws NumberFormatException If the token is empty, not a number, or out of range.
+   */
+  public long nextLong()
+      throws NoSuchElementException {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    int offset = mCurrentOffset;
+    int length = advance();
+    return parseLong(
+        mData,
+        offset,
+        offset + length);
+  }
+
+  /**
+   * Reads the next token into a reusable view of the buffer, without copying or allocating.
+   * @param token The view to fill in.
+   * @return The same view, now holding the next token.
+   * @throws NoSuchElementException
+   */
+  public Token nextToken(Token token)
+      throws NoSuchElementException {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    int offset = mCurrentOffset;
+    int length = advance();
+    token.set(mData, offset, length);
+    return token;
+  }
+
+  /**
+   * @return True if there is input left to read.
+   */
+  public boolean hasNext() {
+    throwIfNotReset();
+    return mCurrentOffset < mTotalLength;
+  }
+
+  /**
+   * Move past any delimiters at the current position, so that runs of delimiters
+   * (such as column-aligning spaces) don't produce empty tokens.
+   */
+  public ByteArrayScanner skipDelimiters() {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    while (mCurrentOffset < mTotalLength && mData[mCurrentOffset] == mDelimiter) {
+      mCurrentOffset++;
+    }
+    return this;
+  }
+
+  /**
+   * Move to the start of the next line, regardless of the delimiter in use.
+   */
+  public void skipLine() {
+    throwIfNotReset();
+    int index = indexOf(
+        mData,
+        mCurrentOffset,
+        mTotalLength,
+        '\n');
+    mCurrentOffset = index == -1 ? mTotalLength : index + 1;
+  }
+
+  /**
+   * Move to the next token.
+   * @throws NoSuchElementException
+   */
+  public void skip()
+      throws NoSuchElementException {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    advance();
+  }
+
+  private int advance()
+      throws NoSuchElementException {
+    throwIfNotReset();
+    throwIfDelimiterNotSet();
+    if (mTotalLength <= mCurrentOffset) {
+      throw new NoSuchElementException("Reading past end of input stream at " + mCurrentOffset + ".");
+    }
+    int index = indexOf(
+        mData,
+        mCurrentOffset,
+        mTotalLength,
+        mDelimiter);
+    if (index == -1) {
+      int length = mTotalLength - mCurrentOffset;
+      mCurrentOffset = mTotalLength;
+      return length;
+    } else {
+      int length = index - mCurrentOffset;
+      mCurrentOffset = index + 1;
+      return length;
+    }
+  }
+
+  /**
+   * Parses a signed decimal long. Accumulates negatively, like {@link Long#parseLong(String)},
+   * so that {@link Long#MIN_VALUE} can be represented.
+   */
+  private static long parseLong(byte[] buffer, int start, int end)
+      throws NumberFormatException {
+    int radix = 10;
+    int position = start;
+    boolean negative = false;
+    long limit = -Long.MAX_VALUE;
+    if (position < end && (buffer[position] == '-' || buffer[position] == '+')) {
+      negative = buffer[position] == '-';
+      if (negative) {
+        limit = Long.MIN_VALUE;
+      }
+      position++;
+    }
+    if (position == end) {
+      throw new NumberFormatException("Empty number in buffer at " + start + ".");
+    }
+    long multiplyLimit = limit / radix;
+    long result = 0;
+    while (position < end) {
+      int digit = buffer[position++] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Invalid long in buffer at " + (position - 1) + ".");
+      }
+      if (result < multiplyLimit) {
+        throw new NumberFormatException("Long out of range in buffer at " + start + ".");
+      }
+      result *= radix;
+      if (result < limit + digit) {
+        throw new NumberFormatException("Long out of range in buffer at " + start + ".");
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  private static int indexOf(byte[] data, int start, int end, char ch) {
+    for (int i = start; i < end; i++) {
+      if (data[i] == ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reusable view of a token inside the scanner's buffer. Filling it in does not copy or
+   * allocate; it is only valid until the buffer is modified.
+   */
+  public static class Token implements CharSequence {
+    private @Nullable byte[] mData;
+    private int mOffset;
+    private int mLength;
+
+    void set(byte[] data, int offset, int length) {
+      mData = data;
+      mOffset = offset;
+      mLength = length;
+    }
+
+    @Override
+    public int length() {
+      return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= mLength) {
+        throw new IndexOutOfBoundsException("index=" + index + " length=" + mLength);
+      }
+      return (char) (mData[mOffset + index] & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > mLength || start > end) {
+        throw new IndexOutOfBoundsException(
+            "start=" + start + " end=" + end + " length=" + mLength);
+      }
+      Token token = new Token();
+      token.set(mData, mOffset + start, end - start);
+      return token;
+    }
+
+    /**
+     * @return True if this token has the same characters as the given sequence.
+     */
+    public boolean contentEquals(CharSequence other) {
+      if (other.length() != mLength) {
+        return false;
+      }
+      for (int i = 0; i < mLength; i++) {
+        if (other.charAt(i) != (mData[mOffset + i] & 0xff)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return The token parsed as a signed decimal long.
+     * @throws NumberFormatException If the token is empty, not a number, or out of range.
+     */
+    public long parseLong() {
+      return ByteArrayScanner.parseLong(mData, mOffset, mOffset + mLength);
+    }
+
+    @Override
+    public String toString() {
+      return mData == null ? "" : new String(mData, mOffset, mLength);
+    }
+  }
+}
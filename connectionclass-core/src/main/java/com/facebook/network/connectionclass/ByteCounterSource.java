@@ -0,0 +1,33 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Source of cumulative byte counters, such as the device's total received and sent bytes.
+ * {@link BandwidthSampler} polls it and turns the deltas into bandwidth samples.
+ */
+public interface ByteCounterSource {
+
+  /**
+   * Returned when the counter cannot be read on this device.
+   */
+  long UNSUPPORTED = -1;
+
+  /**
+   * @return Total bytes received since some fixed point in time, or {@link #UNSUPPORTED}.
+   */
+  long getRxBytes();
+
+  /**
+   * @return Total bytes sent since some fixed point in time, or {@link #UNSUPPORTED}.
+   */
+  long getTxBytes();
+}
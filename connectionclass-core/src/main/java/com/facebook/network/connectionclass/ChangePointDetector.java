@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Two-sided CUSUM test telling an abrupt change of the link, such as leaving Wi-Fi for a
+ * congested cell, from noise around the current estimate. Each side sums how far the log of
+ * each sample is above (or below) the log of the estimate, minus a drift allowance, and resets
+ * to zero whenever the sum goes negative; noise keeps both sums near zero, while a real shift
+ * makes one of them grow by roughly the size of the shift every sample until it crosses the
+ * threshold. No single sample adds more than half the threshold, so however far off it is, one
+ * outlier cannot fire the test on its own.
+ * </p>
+ * <p>
+ * When it fires, the level after the change is the geometric mean of the samples since the
+ * firing sum last left zero.
+ * </p>
+ */
+/*package*/ class ChangePointDetector {
+
+  /** Half the smallest shift worth detecting: halving or doubling the bandwidth. */
+  /*package*/ static final double DEFAULT_DRIFT = Math.log(2) / 2;
+  /**
+   * Sum at which the change is taken for real. A tenfold drop adds about 2 per sample, clipped
+   * to half of this, so it is detected on the second sample.
+   */
+  /*package*/ static final double DEFAULT_THRESHOLD = 3;
+
+  private final double mDrift;
+  private final double mThreshold;
+  private final double mMaxStep;
+
+  private double mUpperSum;
+  private double mUpperLogTotal;
+  private int mUpperCount;
+  private double mLowerSum;
+  private double mLowerLogTotal;
+  private int mLowerCount;
+
+  private double mChangeLogLevel = Double.NaN;
+  private int mChangeSampleCount;
+
+  /*package*/ ChangePointDetector() {
+    this(DEFAULT_DRIFT, DEFAULT_THRESHOLD);
+  }
+
+  /*package*/ ChangePointDetector(double drift, double threshold) {
+    mDrift = drift;
+    mThreshold = threshold;
+    mMaxStep = threshold / 2;
+  }
+
+  /**
+   * @param logSample Natural log of the new sample.
+   * @param logEstimate Natural log of the current estimate, before the sample; NaN if none.
+   * @return True if the samples since the last reset show a change. The sums start over.
+   */
+  /*package*/ boolean addLogSample(double logSample, double logEstimate) {
+    if (Double.isNaN(logEstimate)) {
+      return false;
+    }
+    double deviation = logSample - logEstimate;
+
+    mUpperSum += Math.min(deviation - mDrift, mMaxStep);
+    if (mUpperSum > 0) {
+      mUpperLogTotal += logSample;
+      mUpperCount++;
+    } else {
+      mUpperSum = 0;
+      mUpperLogTotal = 0;
+      mUpperCount = 0;
+    }
+
+    mLowerSum += Math.min(-deviation - mDrift, mMaxStep);
+    if (mLowerSum > 0) {
+      mLowerLogTotal += logSample;
+      mLowerCount++;
+    } else {
+      mLowerSum = 0;
+      mLowerLogTotal = 0;
+      mLowerCount = 0;
+    }
+
+    if (mUpperSum >= mThreshold) {
+      onChange(mUpperLogTotal, mUpperCount);
+      return true;
+    }
+    if (mLowerSum >= mThreshold) {
+      onChange(mLowerLogTotal, mLowerCount);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return Natural log of the level after the last change detected.
+   */
+  /*package*/ double getChangeLogLevel() {
+    return mChangeLogLevel;
+  }
+
+  /**
+   * @return The number of samples the level after the last change detected is based on.
+   */
+  /*package*/ int getChangeSampleCount() {
+    return mChangeSampleCount;
+  }
+
+  /*package*/ void reset() {
+    mUpperSum = 0;
+    mUpperLogTotal = 0;
+    mUpperCount = 0;
+    mLowerSum = 0;
+    mLowerLogTotal = 0;
+    mLowerCount = 0;
+  }
+
+  private void onChange(double logTotal, int count) {
+    mChangeLogLevel = logTotal / count;
+    mChangeSampleCount = count;
+    reset();
+  }
+}
@@ -0,0 +1,22 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Monotonic time source used to time bandwidth samples.
+ */
+public interface Clock {
+
+  /**
+   * @return Milliseconds since some fixed point in time. Never goes backwards.
+   */
+  long elapsedRealtime();
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * {@link Flow.Publisher} of the latest value of some state. A subscriber without outstanding
+ * demand is not queued up for: it keeps only the latest value published, and gets it once it
+ * requests more. New subscribers start with the latest value published so far.
+ * </p>
+ * <p>
+ * Publishing to no subscribers costs a volatile read; callers check
+ * {@link #hasSubscribers()} before creating a value they would only publish. Items are
+ * delivered on the thread publishing them or on a thread requesting more, one at a time per
+ * subscriber. The state never ends, so {@link Flow.Subscriber#onComplete()} is never called.
+ * A subscriber whose {@code onNext} throws is cancelled and gets the exception through
+ * {@link Flow.Subscriber#onError(Throwable)}, without affecting the others.
+ * </p>
+ */
+/*package*/ class ConflatingPublisher<T> implements Flow.Publisher<T> {
+
+  private final CopyOnWriteArrayList<ConflatingSubscription> mSubscriptions =
+      new CopyOnWriteArrayList<ConflatingSubscription>();
+  private final AtomicReference<T> mLatest = new AtomicReference<T>();
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    if (!subscription.mCancelled) {
+      mSubscriptions.add(subscription);
+      if (mLatest.get() != null) {
+        subscription.signal();
+      }
+    }
+  }
+
+  /**
+   * @return True if anyone would receive a published value.
+   */
+  /*package*/ boolean hasSubscribers() {
+    return !mSubscriptions.isEmpty();
+  }
+
+  /**
+   * Forgets the latest value, including the one subscribers have not requested yet, so that
+   * nobody gets a value from before the state was reset.
+   */
+  /*package*/ void clear() {
+    mLatest.set(null);
+  }
+
+  /**
+   * Hands a value to every subscriber, replacing any value it has not requested yet.
+   */
+  /*package*/ void publish(T value) {
+    mLatest.set(value);
+    for (ConflatingSubscription subscription : mSubscriptions) {
+      subscription.signal();
+    }
+  }
+
+  private class ConflatingSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super T> mSubscriber;
+    /**
+     * Set when a value was published since the last delivery. Deliveries read the latest value
+     * rather than the one that set the flag, so a subscriber never goes back to an older one.
+     */
+    private final AtomicBoolean mUpdated = new AtomicBoolean();
+    private final AtomicLong mRequested = new AtomicLong();
+    /** Number of drain requests; only the caller raising it from zero delivers. */
+    private final AtomicInteger mDrainRequests = new AtomicInteger();
+    private volatile IllegalArgumentException mInvalidRequest;
+    volatile boolean mCancelled;
+
+    ConflatingSubscription(Flow.Subscriber<? super T> subscriber) {
+      mSubscriber = subscriber;
+    }
+
+    void signal() {
+      mUpdated.set(true);
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        mInvalidRequest = new IllegalArgumentException("Non-positive request " + n + ".");
+      } else {
+        long requested;
+        long updated;
+        do {
+          requested = mRequested.get();
+          updated = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+        } while (!mRequested.compareAndSet(requested, updated));
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      mCancelled = true;
+      mSubscriptions.remove(this);
+    }
+
+    private void drain() {
+      if (mDrainRequests.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (mCancelled) {
+          return;
+        }
+        IllegalArgumentException invalidRequest = mInvalidRequest;
+        if (invalidRequest != null) {
+          cancel();
+          mSubscriber.onError(invalidRequest);
+          return;
+        }
+        if (mRequested.get() > 0 && mUpdated.getAndSet(false)) {
+          T latest = mLatest.get();
+          if (latest != null) {
+            if (mRequested.get() != Long.MAX_VALUE) {
+              mRequested.decrementAndGet();
+            }
+            try {
+              mSubscriber.onNext(latest);
+            } catch (RuntimeException e) {
+              cancel();
+              mSubscriber.onError(e);
+              return;
+            }
+          }
+        }
+        missed = mDrainRequests.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
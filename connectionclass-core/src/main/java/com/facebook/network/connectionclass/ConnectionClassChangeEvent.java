@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Describes a change of ConnectionClass, as delivered to a
+ * {@link ConnectionClassManager.ConnectionClassChangeListener}. When several changes happen
+ * before listeners get to run, they are delivered as a single event going from the quality
+ * before the first change to the quality after the last one.
+ */
+public final class ConnectionClassChangeEvent {
+
+  private final int mPreviousTier;
+  private final ConnectionQuality mPreviousQuality;
+  private final int mTier;
+  private final ConnectionQuality mQuality;
+  private final double mDownloadKBitsPerSecond;
+  private final long mTimestampMs;
+  /** {@link System#nanoTime()} of the first change merged into this event. */
+  private final long mPostedNs;
+
+  /*package*/ ConnectionClassChangeEvent(
+      int previousTier,
+      ConnectionQuality previousQuality,
+      int tier,
+      ConnectionQuality quality,
+      double downloadKBitsPerSecond,
+      long timestampMs,
+      long postedNs) {
+    mPreviousTier = previousTier;
+    mPreviousQuality = previousQuality;
+    mTier = tier;
+    mQuality = quality;
+    mDownloadKBitsPerSecond = downloadKBitsPerSecond;
+    mTimestampMs = timestampMs;
+    mPostedNs = postedNs;
+  }
+
+  /*package*/ long getPostedNs() {
+    return mPostedNs;
+  }
+
+  /**
+   * @return The ConnectionClass before the change.
+   */
+  public ConnectionQuality getPreviousQuality() {
+    return mPreviousQuality;
+  }
+
+  /**
+   * @return The tier of the manager's {@link BandTable} before the change, or -1 if unknown.
+   */
+  public int getPreviousTier() {
+    return mPreviousTier;
+  }
+
+  /**
+   * @return The new ConnectionClass.
+   */
+  public ConnectionQuality getQuality() {
+    return mQuality;
+  }
+
+  /**
+   * @return The new tier of the manager's {@link BandTable}.
+   */
+  public int getTier() {
+    return mTier;
+  }
+
+  /**
+   * @return The bandwidth average in kbps at the time of the change.
+   */
+  public double getDownloadKBitsPerSecond() {
+    return mDownloadKBitsPerSecond;
+  }
+
+  /**
+   * @return The time of the change, as given by {@link System#currentTimeMillis()}.
+   */
+  public long getTimestampMs() {
+    return mTimestampMs;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionClassChangeEvent{" + mPreviousQuality + " (" + mPreviousTier + ") -> "
+        + mQuality + " (" + mTier + "), " + mDownloadKBitsPerSecond + " kbps, at " + mTimestampMs + "}";
+  }
+}
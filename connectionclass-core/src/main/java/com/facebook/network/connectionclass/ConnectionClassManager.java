@@ -0,0 +1,907 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Class used to calculate the approximate bandwidth of a user's connection.
+ * </p>
+ * <p>
+ * This class notifies all subscribed {@link ConnectionClassStateChangeListener} with the new
+ * ConnectionClass when the network's ConnectionClass changes.
+ * </p>
+ * <p>
+ * Samples can be added from any number of threads without blocking. They are published to a
+ * lock-free queue and folded into the moving average by whichever thread currently holds the
+ * drain flag, so the state change logic only ever runs on one thread at a time.
+ * </p>
+ * <p>
+ * Listeners are never called while the drain flag is held. By default they run on the thread
+ * that added the sample, once it is done ingesting; {@link #setListenerExecutor(Executor)}
+ * moves them to another thread. Changes that happen while listeners are still pending are
+ * coalesced, so listeners only see the latest ConnectionClass.
+ * </p>
+ */
+public class ConnectionClassManager {
+
+  /*package*/ static final double DEFAULT_SAMPLES_TO_QUALITY_CHANGE = 5;
+  private static final int BYTES_TO_BITS = 8;
+
+  /**
+   * Default values for determining quality of data connection.
+   * Bandwidth numbers are in Kilobits per second (kbps).
+   */
+  /*package*/ static final int DEFAULT_POOR_BANDWIDTH = 150;
+  /*package*/ static final int DEFAULT_MODERATE_BANDWIDTH = 550;
+  /*package*/ static final int DEFAULT_GOOD_BANDWIDTH = 2000;
+  /*package*/ static final long DEFAULT_HYSTERESIS_PERCENT = 20;
+
+  /** Tiers of the default thresholds. */
+  private static final BandTable DEFAULT_BAND_TABLE = new BandTable(
+      new double[] {DEFAULT_POOR_BANDWIDTH, DEFAULT_MODERATE_BANDWIDTH, DEFAULT_GOOD_BANDWIDTH},
+      DEFAULT_HYSTERESIS_PERCENT);
+
+  /** ConnectionQuality of each tier of the default table. */
+  /*package*/ static final ConnectionQuality[] BANDWIDTH_QUALITIES = {
+      ConnectionQuality.POOR,
+      ConnectionQuality.MODERATE,
+      ConnectionQuality.GOOD,
+      ConnectionQuality.EXCELLENT,
+  };
+
+  /**
+   * The factor used to calculate the current bandwidth
+   * depending upon the previous calculated value for bandwidth.
+   *
+   * The smaller this value is, the less responsive to new samples the moving average becomes.
+   */
+  private static final double DEFAULT_DECAY_CONSTANT = 0.05;
+
+  private static final BandwidthEstimator.Factory DEFAULT_ESTIMATOR_FACTORY =
+      new BandwidthEstimator.Factory() {
+        @Override
+        public BandwidthEstimator create() {
+          return new ExponentialGeometricAverage(DEFAULT_DECAY_CONSTANT);
+        }
+      };
+
+  /**
+   * Number of samples after which the counts of the bandwidth histogram are halved, so that
+   * quantiles follow the recent samples.
+   */
+  private static final long DEFAULT_QUANTILE_AGING_SAMPLES = 256;
+
+  /**
+   * Number of samples that can be waiting for the draining thread before producers have to
+   * help drain.
+   */
+  private static final int PENDING_SAMPLE_CAPACITY = 256;
+  /** How long a thread backs off while it waits for another thread to finish draining. */
+  private static final long DRAIN_BACKOFF_NS = 1000;
+  /** Default minimum time between two readings of the bandwidth publisher. */
+  private static final long DEFAULT_BANDWIDTH_PUBLISH_INTERVAL_MS = 1000;
+
+  /** Current bandwidth of the user's connection depending upon the response. */
+  private final BandwidthEstimator mDownloadBandwidth;
+  /** Distribution of recent samples; only touched by the thread holding the drain flag. */
+  private final QuantileHistogram mDownloadBandwidthHistogram =
+      new QuantileHistogram(DEFAULT_QUANTILE_AGING_SAMPLES);
+  /**
+   * Snapshot of the natural log of the moving average, or NaN, published by the draining thread
+   * for lock-free reads. Only exponentiated when a caller asks for kbps.
+   */
+  private volatile double mDownloadBandwidthLogAverage = Double.NaN;
+  private final BandwidthSampleQueue mPendingSamples =
+      new BandwidthSampleQueue(PENDING_SAMPLE_CAPACITY);
+  /** Held by the one thread allowed to fold samples into the moving average. */
+  private final AtomicBoolean mDraining = new AtomicBoolean();
+  private final BandTable mBandTable;
+  /** ConnectionQuality reported for each tier of mBandTable. */
+  private final ConnectionQuality[] mTierQualities;
+  /** Applies the hysteresis; only advanced by the thread holding the drain flag. */
+  private final BandStateMachine mBandwidthStateMachine;
+  private final CopyOnWriteArrayList<ConnectionClassStateChangeListener> mListenerList =
+      new CopyOnWriteArrayList<ConnectionClassStateChangeListener>();
+  private final CopyOnWriteArrayList<ConnectionClassChangeListener> mEventListenerList =
+      new CopyOnWriteArrayList<ConnectionClassChangeListener>();
+  private volatile Executor mListenerExecutor = SAME_THREAD_EXECUTOR;
+  private volatile MetricsSink mMetricsSink;
+  private volatile BandwidthTraceWriter mTraceWriter;
+  private final BandwidthEstimator.Factory mEstimatorFactory;
+  /**
+   * Set while change-point detection is enabled; only used by the thread holding the drain
+   * flag.
+   */
+  private volatile ChangePointDetector mChangePointDetector;
+  private final double mSamplesToQualityChange;
+  /**
+   * Tracks upload bandwidth with the same tiers and hysteresis; created on first use, since
+   * most managers only ever see downloads.
+   */
+  private final AtomicReference<ConnectionClassManager> mUploadManager =
+      new AtomicReference<ConnectionClassManager>();
+  /** Change that listeners have not been given yet; replaced by later changes. */
+  private final AtomicReference<ConnectionClassChangeEvent> mPendingEvent =
+      new AtomicReference<ConnectionClassChangeEvent>();
+  /** Held while a dispatch task is scheduled or running, so that events stay in order. */
+  private final AtomicBoolean mDispatchScheduled = new AtomicBoolean();
+  private final Runnable mDispatchTask = new Runnable() {
+    @Override
+    public void run() {
+      dispatchPendingEvents();
+    }
+  };
+  private final ConflatingPublisher<ConnectionClassChangeEvent> mChangePublisher =
+      new ConflatingPublisher<ConnectionClassChangeEvent>();
+  private final ConflatingPublisher<Double> mBandwidthPublisher =
+      new ConflatingPublisher<Double>();
+  private volatile long mBandwidthPublishIntervalNs =
+      DEFAULT_BANDWIDTH_PUBLISH_INTERVAL_MS * 1000000L;
+  /** When the bandwidth publisher was last given a reading. */
+  private final AtomicLong mLastBandwidthPublishNs =
+      new AtomicLong(System.nanoTime() - mBandwidthPublishIntervalNs);
+  private final Runnable mBandwidthPublishTask = new Runnable() {
+    @Override
+    public void run() {
+      double kbps = getDownloadKBitsPerSecond();
+      if (kbps >= 0) {
+        mBandwidthPublisher.publish(kbps);
+      }
+    }
+  };
+
+  /*package*/ static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  /** Size of the state written by {@link #writeState(ByteBuffer, int)}. */
+  /*package*/ static final int STATE_SIZE = 16;
+
+  /**
+   * The lower bound for measured bandwidth in bits/ms. Readings
+   * lower than this are treated as effectively zero (therefore ignored).
+   */
+  static final long BANDWIDTH_LOWER_BOUND = 10;
+
+  // Singleton.
+  private static class ConnectionClassManagerHolder {
+      public static final ConnectionClassManager instance = new ConnectionClassManager();
+  }
+
+  /**
+   * Retrieval method for the DownloadBandwidthManager singleton.
+   * @return The singleton instance of DownloadBandwidthManager.
+   */
+  @Nonnull
+  public static ConnectionClassManager getInstance() {
+      return ConnectionClassManagerHolder.instance;
+  }
+
+  // Instances other than the singleton are created by ConnectionClassManagerRegistry.
+  /*package*/ ConnectionClassManager() {
+    this(DEFAULT_BAND_TABLE, BANDWIDTH_QUALITIES);
+  }
+
+  /**
+   * Creates a manager classifying bandwidth with its own tiers, e.g. the rungs of a bitrate
+   * ladder. Listeners are told about every change of tier; the ConnectionQuality of each tier
+   * is what {@link #getCurrentBandwidthQuality()} and the plain
+   * {@link ConnectionClassStateChangeListener} report.
+   * @param bandTable Tiers in kbps.
+   * @param tierQualities ConnectionQuality of each tier, in non-decreasing order.
+   */
+  public ConnectionClassManager(BandTable bandTable, ConnectionQuality[] tierQualities) {
+    this(bandTable, tierQualities, DEFAULT_ESTIMATOR_FACTORY, DEFAULT_SAMPLES_TO_QUALITY_CHANGE);
+  }
+
+  /**
+   * Creates a manager with its own tiers that estimates bandwidth with something other than
+   * the default geometric moving average, e.g. a {@link HampelEstimator} to ignore outliers.
+   * @param bandTable Tiers in kbps.
+   * @param tierQualities ConnectionQuality of each tier, in non-decreasing order.
+   * @param estimatorFactory Creates the estimators for downloads and uploads.
+   */
+  public ConnectionClassManager(
+      BandTable bandTable,
+      ConnectionQuality[] tierQualities,
+      BandwidthEstimator.Factory estimatorFactory) {
+    this(bandTable, tierQualities, estimatorFactory, DEFAULT_SAMPLES_TO_QUALITY_CHANGE);
+  }
+
+  // Used by the simulator tests to compare the number of samples needed to change tier.
+  /*package*/ ConnectionClassManager(
+      BandTable bandTable,
+      ConnectionQuality[] tierQualities,
+      double samplesToQualityChange) {
+    this(bandTable, tierQualities, DEFAULT_ESTIMATOR_FACTORY, samplesToQualityChange);
+  }
+
+  private ConnectionClassManager(
+      BandTable bandTable,
+      ConnectionQuality[] tierQualities,
+      BandwidthEstimator.Factory estimatorFactory,
+      double samplesToQualityChange) {
+    if (tierQualities.length != bandTable.getTierCount()) {
+      throw new IllegalArgumentException("Expected " + bandTable.getTierCount()
+          + " tier qualities, got " + tierQualities.length + ".");
+    }
+    for (int i = 0; i < tierQualities.length; i++) {
+      if (tierQualities[i] == null || tierQualities[i] == ConnectionQuality.UNKNOWN
+          || (i > 0 && tierQualities[i].compareTo(tierQualities[i - 1]) < 0)) {
+        throw new IllegalArgumentException("Invalid tier qualities.");
+      }
+    }
+    mBandTable = bandTable;
+    mTierQualities = tierQualities.clone();
+    mEstimatorFactory = estimatorFactory;
+    mDownloadBandwidth = estimatorFactory.create();
+    mSamplesToQualityChange = samplesToQualityChange;
+    mBandwidthStateMachine = new BandStateMachine(bandTable, samplesToQualityChange);
+  }
+
+  /**
+   * Adds bandwidth to the current filtered latency counter. Sends a broadcast to all
+   * {@link ConnectionClassStateChangeListener} if the counter moves from one bucket
+   * to another (i.e. poor bandwidth -> moderate bandwidth).
+   */
+  public void addBandwidth(long bytes, long timeInMs) {
+    BandwidthTraceWriter traceWriter = mTraceWriter;
+    if (traceWriter != null) {
+      traceWriter.append(bytes, timeInMs);
+    }
+
+    //Ignore garbage values.
+    if (timeInMs == 0 || (bytes) * 1.0 / (timeInMs) * BYTES_TO_BITS < BANDWIDTH_LOWER_BOUND) {
+      MetricsSink sink = mMetricsSink;
+      if (sink != null) {
+        sink.onSampleDropped();
+      }
+      return;
+    }
+
+    double bandwidth = (bytes) * 1.0 / (timeInMs) * BYTES_TO_BITS;
+    if (mDraining.compareAndSet(false, true)) {
+      // Uncontended: fold the sample in directly instead of going through the queue.
+      try {
+        drainHeldSamples();
+        applyBandwidth(bandwidth);
+        mDownloadBandwidthLogAverage = mDownloadBandwidth.getLogAverage();
+      } finally {
+        mDraining.set(false);
+      }
+    } else {
+      while (!mPendingSamples.offer(bandwidth)) {
+        // The queue is full: help drain it, or back off while another thread does.
+        if (!drainPendingSamples()) {
+          LockSupport.parkNanos(DRAIN_BACKOFF_NS);
+        }
+      }
+    }
+    drainPendingSamples();
+  }
+
+  /**
+   * Adds a batch of samples in one pass. Each sample goes through the same filtering, averaging
+   * and state change logic as {@link #addBandwidth(long, long)}, but the moving average is only
+   * acquired once for the whole batch and listeners are notified at most once, with the
+   * ConnectionClass the batch ends in.
+   * @param bytes Bytes transferred for each sample.
+   * @param timesMs Time in ms taken by each sample.
+   * @param offset Index of the first sample in both arrays.
+   * @param count Number of samples to add.
+   */
+  public void addBandwidthBatch(long[] bytes, long[] timesMs, int offset, int count) {
+    // Compared by subtraction, since offset + count may overflow.
+    if (offset < 0 || count < 0
+        || count > bytes.length - offset || count > timesMs.length - offset) {
+      throw new IllegalArgumentException(
+          "Invalid batch offset=" + offset + " count=" + count + ".");
+    }
+    BandwidthTraceWriter traceWriter = mTraceWriter;
+    if (traceWriter != null) {
+      for (int i = offset; i < offset + count; i++) {
+        traceWriter.append(bytes[i], timesMs[i]);
+      }
+    }
+    acquireDrainFlag();
+    try {
+      drainHeldSamples();
+      for (int i = offset; i < offset + count; i++) {
+        long timeInMs = timesMs[i];
+        //Ignore garbage values.
+        if (timeInMs == 0 || bytes[i] * 1.0 / timeInMs * BYTES_TO_BITS < BANDWIDTH_LOWER_BOUND) {
+          MetricsSink sink = mMetricsSink;
+          if (sink != null) {
+            sink.onSampleDropped();
+          }
+          continue;
+        }
+        applyBandwidth(bytes[i] * 1.0 / timeInMs * BYTES_TO_BITS);
+      }
+      mDownloadBandwidthLogAverage = mDownloadBandwidth.getLogAverage();
+    } finally {
+      mDraining.set(false);
+    }
+    drainPendingSamples();
+  }
+
+  /**
+   * Folds all published samples into the moving average, unless another thread is already
+   * doing so. The thread holding the drain flag re-checks the queue after releasing it, so a
+   * sample published while it was busy is never left behind. Then hands any change of
+   * ConnectionClass to the listeners.
+   * @return True if this thread drained any samples.
+   */
+  private boolean drainPendingSamples() {
+    boolean drained = false;
+    while (mPendingSamples.hasPending() && mDraining.compareAndSet(false, true)) {
+      try {
+        drainHeldSamples();
+        mDownloadBandwidthLogAverage = mDownloadBandwidth.getLogAverage();
+      } finally {
+        mDraining.set(false);
+      }
+      drained = true;
+    }
+    if (mPendingEvent.get() != null && mDispatchScheduled.compareAndSet(false, true)) {
+      mListenerExecutor.execute(mDispatchTask);
+    }
+    if (mBandwidthPublisher.hasSubscribers()) {
+      long now = System.nanoTime();
+      long last = mLastBandwidthPublishNs.get();
+      if (now - last >= mBandwidthPublishIntervalNs
+          && mLastBandwidthPublishNs.compareAndSet(last, now)) {
+        mListenerExecutor.execute(mBandwidthPublishTask);
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Applies every published sample. Only called while holding the drain flag.
+   */
+  private void drainHeldSamples() {
+    double bandwidth;
+    while (!Double.isNaN(bandwidth = mPendingSamples.poll())) {
+      applyBandwidth(bandwidth);
+    }
+  }
+
+  /**
+   * Spins until this thread holds the drain flag. Used by the rare callers that need exclusive
+   * access to the moving average; must be paired with {@code mDraining.set(false)}.
+   */
+  private void acquireDrainFlag() {
+    while (!mDraining.compareAndSet(false, true)) {
+      LockSupport.parkNanos(DRAIN_BACKOFF_NS);
+    }
+  }
+
+  /**
+   * Adds a single sample to the moving average and advances the state change logic. Only
+   * called while holding the drain flag.
+   */
+  private void applyBandwidth(double bandwidth) {
+    mDownloadBandwidthHistogram.addMeasurement(bandwidth);
+
+    int previousBand = mBandwidthStateMachine.getCurrentBand();
+    boolean wasPending = mBandwidthStateMachine.isChangePending();
+    boolean jumped = false;
+    int result;
+    ChangePointDetector detector = mChangePointDetector;
+    if (detector != null
+        && detector.addLogSample(Math.log(bandwidth), mDownloadBandwidth.getLogAverage())) {
+      // The link has changed for sure: start over from the samples since the change rather
+      // than wait for the average to catch up and the hysteresis to agree.
+      mDownloadBandwidth.restore(detector.getChangeLogLevel(), detector.getChangeSampleCount());
+      result = mBandwidthStateMachine.jumpTo(mDownloadBandwidth.getLogAverage());
+      jumped = true;
+    } else {
+      mDownloadBandwidth.addMeasurement(bandwidth);
+      result = mBandwidthStateMachine.onLogAverage(mDownloadBandwidth.getLogAverage());
+    }
+    if (result == BandStateMachine.CHANGE_COMMITTED) {
+      postEvent(previousBand);
+    }
+
+    MetricsSink sink = mMetricsSink;
+    if (sink != null) {
+      sink.onSampleAccepted();
+      switch (result) {
+        case BandStateMachine.CHANGE_STARTED:
+          sink.onTransitionStarted();
+          break;
+        case BandStateMachine.CHANGE_ABORTED:
+          sink.onTransitionAborted();
+          break;
+        case BandStateMachine.CHANGE_COMMITTED:
+          if (jumped && !wasPending) {
+            // A jump starts and commits its change at once.
+            sink.onTransitionStarted();
+          }
+          sink.onTransitionCommitted();
+          reportQualityChange(sink, previousBand);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Reports the ConnectionQuality changing from that of a band to the current one, if it did.
+   */
+  private void reportQualityChange(MetricsSink sink, int previousBand) {
+    ConnectionQuality previousQuality = toQuality(previousBand);
+    ConnectionQuality quality = toQuality(mBandwidthStateMachine.getCurrentBand());
+    if (previousQuality != quality) {
+      sink.onQualityChanged(previousQuality, quality);
+    }
+  }
+
+  /**
+   * Records a change of ConnectionClass for the listeners, merging it with a change they have
+   * not been given yet. Only called while holding the drain flag.
+   */
+  private void postEvent(int previousBand) {
+    int band = mBandwidthStateMachine.getCurrentBand();
+    double kbps = Math.exp(mDownloadBandwidth.getLogAverage());
+    long timestampMs = System.currentTimeMillis();
+    ConnectionClassChangeEvent pending;
+    ConnectionClassChangeEvent event;
+    do {
+      pending = mPendingEvent.get();
+      int eventPreviousBand = pending == null ? previousBand : pending.getPreviousTier();
+      event = new ConnectionClassChangeEvent(
+          eventPreviousBand,
+          toQuality(eventPreviousBand),
+          band,
+          toQuality(band),
+          kbps,
+          timestampMs,
+          pending == null ? System.nanoTime() : pending.getPostedNs());
+    } while (!mPendingEvent.compareAndSet(pending, event));
+  }
+
+  /**
+   * Resets the bandwidth average for this instance of the bandwidth manager.
+   */
+  public void reset() {
+    acquireDrainFlag();
+    try {
+      // Samples published before the reset are discarded along with the average.
+      mPendingSamples.clear();
+      mDownloadBandwidth.reset();
+      ChangePointDetector detector = mChangePointDetector;
+      if (detector != null) {
+        detector.reset();
+      }
+      mDownloadBandwidthLogAverage = Double.NaN;
+      mDownloadBandwidthHistogram.reset();
+      int previousBand = mBandwidthStateMachine.getCurrentBand();
+      mBandwidthStateMachine.reset();
+      mChangePublisher.clear();
+      mBandwidthPublisher.clear();
+      MetricsSink sink = mMetricsSink;
+      if (sink != null) {
+        reportQualityChange(sink, previousBand);
+      }
+    } finally {
+      mDraining.set(false);
+    }
+    // Samples published during the reset belong after it.
+    drainPendingSamples();
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager != null) {
+      uploadManager.reset();
+    }
+  }
+
+  /**
+   * Writes the moving average and the current ConnectionClass into {@link #STATE_SIZE} bytes of
+   * {@code buffer} at {@code index}, for {@link ConnectionClassStateStore}.
+   */
+  /*package*/ void writeState(ByteBuffer buffer, int index) {
+    acquireDrainFlag();
+    try {
+      drainHeldSamples();
+      buffer.putDouble(index, mDownloadBandwidth.getLogAverage());
+      buffer.putInt(index + 8, mDownloadBandwidth.getCount());
+      buffer.putInt(index + 12, mBandwidthStateMachine.getCurrentBand());
+    } finally {
+      mDraining.set(false);
+    }
+    drainPendingSamples();
+  }
+
+  /**
+   * Replaces the moving average and the current ConnectionClass with state written by
+   * {@link #writeState(ByteBuffer, int)}. Samples added concurrently are applied on top, and
+   * listeners are notified if the ConnectionClass changes.
+   * @return True if the state was valid and has been restored.
+   */
+  /*package*/ boolean readState(ByteBuffer buffer, int index) {
+    double logAverage = buffer.getDouble(index);
+    int count = buffer.getInt(index + 8);
+    int band = buffer.getInt(index + 12);
+    if (count <= 0 || Double.isNaN(logAverage) || Double.isInfinite(logAverage)
+        || band < BandStateMachine.UNKNOWN_BAND || band >= mBandTable.getTierCount()) {
+      return false;
+    }
+    acquireDrainFlag();
+    try {
+      int previousBand = mBandwidthStateMachine.getCurrentBand();
+      mDownloadBandwidth.restore(logAverage, count);
+      mBandwidthStateMachine.restore(band);
+      if (band != previousBand) {
+        postEvent(previousBand);
+        MetricsSink sink = mMetricsSink;
+        if (sink != null) {
+          reportQualityChange(sink, previousBand);
+        }
+      }
+      drainHeldSamples();
+      mDownloadBandwidthLogAverage = mDownloadBandwidth.getLogAverage();
+    } finally {
+      mDraining.set(false);
+    }
+    drainPendingSamples();
+    return true;
+  }
+
+  /**
+   * Get the ConnectionQuality that the moving bandwidth average currently represents.
+   * @return A ConnectionQuality representing the device's bandwidth at this exact moment.
+   */
+  public ConnectionQuality getCurrentBandwidthQuality() {
+    return toQuality(mBandwidthStateMachine.mapBand(mDownloadBandwidthLogAverage));
+  }
+
+  private ConnectionQuality toQuality(int band) {
+    return band == BandStateMachine.UNKNOWN_BAND
+        ? ConnectionQuality.UNKNOWN
+        : mTierQualities[band];
+  }
+
+  /**
+   * @return True while the bandwidth average has left the current ConnectionClass but not yet
+   *     for long enough to change it, i.e. while the estimate is unsettled.
+   */
+  public boolean isBandwidthChangePending() {
+    return mBandwidthStateMachine.isChangePending();
+  }
+
+  /**
+   * @return The tier of the {@link BandTable} the manager is in, or -1 while unknown.
+   */
+  public int getCurrentBandwidthTier() {
+    return mBandwidthStateMachine.getCurrentBand();
+  }
+
+  /**
+   * @return The tiers this manager classifies bandwidth with.
+   */
+  public BandTable getBandTable() {
+    return mBandTable;
+  }
+
+
+  /**
+   * Accessor method for the current bandwidth average.
+   * @return The current bandwidth average, or -1 if no average has been recorded.
+   */
+  public double getDownloadKBitsPerSecond() {
+    double logAverage = mDownloadBandwidthLogAverage;
+    return Double.isNaN(logAverage) ? -1 : Math.exp(logAverage);
+  }
+
+  /**
+   * Estimates a quantile of the recent bandwidth samples, for callers that need a conservative
+   * figure (e.g. the 10th percentile) rather than the average. Older samples weigh less and
+   * less, and the estimate is accurate to within a few percent.
+   * @param quantile Quantile between 0 and 1, e.g. 0.1 for the 10th percentile.
+   * @return The bandwidth quantile in kbps, or -1 if no sample has been recorded.
+   */
+  public double getDownloadKBitsPerSecondQuantile(double quantile) {
+    double result;
+    acquireDrainFlag();
+    try {
+      drainHeldSamples();
+      mDownloadBandwidthLogAverage = mDownloadBandwidth.getLogAverage();
+      result = mDownloadBandwidthHistogram.getQuantile(quantile);
+    } finally {
+      mDraining.set(false);
+    }
+    drainPendingSamples();
+    return result;
+  }
+
+  /**
+   * Adds a sample of upload bandwidth, e.g. from a sent byte counter. Uploads have their own
+   * moving average, ConnectionClass and listeners, with the same tiers and hysteresis as
+   * downloads.
+   */
+  public void addUploadBandwidth(long bytes, long timeInMs) {
+    getUploadManager().addBandwidth(bytes, timeInMs);
+  }
+
+  /**
+   * Accessor method for the current upload bandwidth average.
+   * @return The current upload bandwidth average, or -1 if no average has been recorded.
+   */
+  public double getUploadKBitsPerSecond() {
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    return uploadManager == null ? -1 : uploadManager.getDownloadKBitsPerSecond();
+  }
+
+  /**
+   * Get the ConnectionQuality that the moving upload bandwidth average currently represents.
+   * @return A ConnectionQuality representing the device's upload bandwidth at this exact moment.
+   */
+  public ConnectionQuality getCurrentUploadQuality() {
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    return uploadManager == null
+        ? ConnectionQuality.UNKNOWN
+        : uploadManager.getCurrentBandwidthQuality();
+  }
+
+  private ConnectionClassManager getUploadManager() {
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager == null) {
+      uploadManager = new ConnectionClassManager(
+          mBandTable, mTierQualities, mEstimatorFactory, mSamplesToQualityChange);
+      if (!mUploadManager.compareAndSet(null, uploadManager)) {
+        return mUploadManager.get();
+      }
+      // Set after publishing, so that a concurrent setter is not lost.
+      uploadManager.setListenerExecutor(mListenerExecutor);
+      uploadManager.setChangePointDetection(mChangePointDetector != null);
+    }
+    return uploadManager;
+  }
+
+  /**
+   * Interface for listening to when {@link com.facebook.network.connectionclass.ConnectionClassManager}
+   * changes state.
+   */
+  public interface ConnectionClassStateChangeListener {
+    /**
+     * The method that will be called when {@link com.facebook.network.connectionclass.ConnectionClassManager}
+     * changes ConnectionClass.
+     * @param bandwidthState The new ConnectionClass.
+     */
+    public void onBandwidthStateChange(ConnectionQuality bandwidthState);
+  }
+
+  /**
+   * Interface for listening to changes of {@link ConnectionClassManager} with their details.
+   */
+  public interface ConnectionClassChangeListener {
+    /**
+     * The method that will be called when {@link ConnectionClassManager} changes
+     * ConnectionClass.
+     * @param event The change, from the last ConnectionClass delivered to the new one.
+     */
+    public void onConnectionClassChange(ConnectionClassChangeEvent event);
+  }
+
+  /**
+   * Sets the executor listeners are called on. Listener calls are serialized, so the executor
+   * may be a thread pool.
+   * @param executor Executor to call listeners on, or null to call them on the thread that
+   *     added the sample causing the change.
+   */
+  public void setListenerExecutor(Executor executor) {
+    mListenerExecutor = executor == null ? SAME_THREAD_EXECUTOR : executor;
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager != null) {
+      uploadManager.setListenerExecutor(executor);
+    }
+  }
+
+  /**
+   * @return The executor listeners are called on, to be passed back to
+   *     {@link #setListenerExecutor(Executor)}.
+   */
+  /*package*/ Executor getListenerExecutor() {
+    return mListenerExecutor;
+  }
+
+  /**
+   * Enables detection of abrupt changes of the link alongside the moving average. A sustained
+   * shift of at least a factor of two, such as moving from Wi-Fi to a congested cell, is then
+   * reported within a couple of samples instead of waiting for the average and the hysteresis,
+   * while noise is still smoothed out as usual. Applies to uploads as well. Off by default.
+   * @param enabled True to detect changes.
+   */
+  public void setChangePointDetection(boolean enabled) {
+    mChangePointDetector = enabled ? new ChangePointDetector() : null;
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager != null) {
+      uploadManager.setChangePointDetection(enabled);
+    }
+  }
+
+  /**
+   * Attaches a sink for the metrics of this manager. Only download samples are reported.
+   * @param sink Sink to report to, or null to stop reporting.
+   */
+  public void setMetricsSink(MetricsSink sink) {
+    mMetricsSink = sink;
+  }
+
+  /**
+   * Records every download sample added to this manager, before filtering, to a trace.
+   * @param traceWriter Writer to record to, or null to stop recording.
+   */
+  public void setTraceWriter(BandwidthTraceWriter traceWriter) {
+    mTraceWriter = traceWriter;
+  }
+
+  /**
+   * Method for adding new listeners to this class.
+   * @param listener {@link ConnectionClassStateChangeListener} to add as a listener.
+   */
+  public ConnectionQuality register(ConnectionClassStateChangeListener listener) {
+    if (listener != null) {
+      mListenerList.add(listener);
+    }
+    return toQuality(mBandwidthStateMachine.getCurrentBand());
+  }
+
+  /**
+   * Method for removing listeners from this class.
+   * @param listener Reference to the {@link ConnectionClassStateChangeListener} to be removed.
+   */
+  public void remove(ConnectionClassStateChangeListener listener) {
+    if (listener != null) {
+      mListenerList.remove(listener);
+    }
+  }
+
+  /**
+   * Method for adding new listeners to this class.
+   * @param listener {@link ConnectionClassChangeListener} to add as a listener.
+   */
+  public ConnectionQuality registerChangeListener(ConnectionClassChangeListener listener) {
+    if (listener != null) {
+      mEventListenerList.add(listener);
+    }
+    return toQuality(mBandwidthStateMachine.getCurrentBand());
+  }
+
+  /**
+   * Method for removing listeners from this class.
+   * @param listener Reference to the {@link ConnectionClassChangeListener} to be removed.
+   */
+  public void removeChangeListener(ConnectionClassChangeListener listener) {
+    if (listener != null) {
+      mEventListenerList.remove(listener);
+    }
+  }
+
+  /**
+   * Adds a listener for changes of the upload ConnectionClass.
+   * @param listener {@link ConnectionClassStateChangeListener} to add as a listener.
+   * @return The current upload ConnectionClass.
+   */
+  public ConnectionQuality registerUpload(ConnectionClassStateChangeListener listener) {
+    return getUploadManager().register(listener);
+  }
+
+  /**
+   * Removes a listener added with {@link #registerUpload(ConnectionClassStateChangeListener)}.
+   * @param listener Reference to the {@link ConnectionClassStateChangeListener} to be removed.
+   */
+  public void removeUpload(ConnectionClassStateChangeListener listener) {
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager != null) {
+      uploadManager.remove(listener);
+    }
+  }
+
+  /**
+   * Adds a listener for changes of the upload ConnectionClass.
+   * @param listener {@link ConnectionClassChangeListener} to add as a listener.
+   * @return The current upload ConnectionClass.
+   */
+  public ConnectionQuality registerUploadChangeListener(ConnectionClassChangeListener listener) {
+    return getUploadManager().registerChangeListener(listener);
+  }
+
+  /**
+   * Removes a listener added with
+   * {@link #registerUploadChangeListener(ConnectionClassChangeListener)}.
+   * @param listener Reference to the {@link ConnectionClassChangeListener} to be removed.
+   */
+  public void removeUploadChangeListener(ConnectionClassChangeListener listener) {
+    ConnectionClassManager uploadManager = mUploadManager.get();
+    if (uploadManager != null) {
+      uploadManager.removeChangeListener(listener);
+    }
+  }
+
+  /**
+   * Publishes the changes delivered to {@link ConnectionClassChangeListener}s with flow control.
+   * A subscriber that has not requested more gets only the latest change once it does, and a
+   * new subscriber starts with the latest change so far.
+   * @return Publisher of changes of ConnectionClass.
+   */
+  public Flow.Publisher<ConnectionClassChangeEvent> getChangePublisher() {
+    return mChangePublisher;
+  }
+
+  /**
+   * Publishes the bandwidth average in kbps as samples come in, at most once per
+   * {@link #setBandwidthPublishInterval(long) interval}, on the listener executor. A subscriber
+   * that has not requested more gets only the latest reading once it does. Nothing is read or
+   * allocated while there are no subscribers.
+   * @return Publisher of bandwidth readings.
+   */
+  public Flow.Publisher<Double> getBandwidthPublisher() {
+    return mBandwidthPublisher;
+  }
+
+  /**
+   * @param intervalMs Minimum time between two readings of {@link #getBandwidthPublisher()}.
+   */
+  public void setBandwidthPublishInterval(long intervalMs) {
+    mBandwidthPublishIntervalNs = intervalMs * 1000000L;
+  }
+
+  /**
+   * Delivers pending changes until there are none left. Only one thread runs this at a time.
+   */
+  private void dispatchPendingEvents() {
+    do {
+      try {
+        ConnectionClassChangeEvent event = mPendingEvent.getAndSet(null);
+        // Changes that cancelled each other out before the listeners ran are not a change.
+        if (event != null && event.getPreviousTier() != event.getTier()) {
+          notifyListeners(event);
+          MetricsSink sink = mMetricsSink;
+          if (sink != null) {
+            sink.onListenerDispatch(System.nanoTime() - event.getPostedNs());
+          }
+        }
+      } finally {
+        mDispatchScheduled.set(false);
+      }
+      // A change posted after the getAndSet may have seen the dispatch still scheduled.
+    } while (mPendingEvent.get() != null && mDispatchScheduled.compareAndSet(false, true));
+  }
+
+  private void notifyListeners(ConnectionClassChangeEvent event) {
+    if (event.getQuality() != event.getPreviousQuality()) {
+      for (ConnectionClassStateChangeListener listener : mListenerList) {
+        listener.onBandwidthStateChange(event.getQuality());
+      }
+    }
+    for (ConnectionClassChangeListener listener : mEventListenerList) {
+      listener.onConnectionClassChange(event);
+    }
+    if (mChangePublisher.hasSubscribers()) {
+      mChangePublisher.publish(event);
+    }
+  }
+}
\ No newline at end of file
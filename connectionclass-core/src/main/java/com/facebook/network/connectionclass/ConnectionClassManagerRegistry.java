@@ -0,0 +1,134 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Registry of independent {@link ConnectionClassManager} instances, one per key (a host, a CDN
+ * POP, a route...), so that a slow endpoint does not drag down the ConnectionClass reported for
+ * a fast one. Each manager keeps the usual moving average, hysteresis and listeners.
+ * </p>
+ * <p>
+ * The registry holds at most a fixed number of managers. When a new key is added to a full
+ * registry, the least recently used manager is evicted. Lookups of existing keys do not lock or
+ * allocate.
+ * </p>
+ * <p>
+ * A manager that has been evicted keeps working for callers still holding it, but is no longer
+ * returned by {@link #get(Object)}; the next lookup for its key starts from scratch.
+ * </p>
+ */
+public class ConnectionClassManagerRegistry<K> {
+
+  private final int mMaxEntries;
+  private final ConcurrentHashMap<K, Entry> mEntries;
+
+  /**
+   * @param maxEntries Maximum number of managers to keep.
+   */
+  public ConnectionClassManagerRegistry(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    mMaxEntries = maxEntries;
+    mEntries = new ConcurrentHashMap<K, Entry>(maxEntries * 2);
+  }
+
+  /**
+   * Retrieves the manager for a key, creating it (and evicting the least recently used manager
+   * if the registry is full) if there is none.
+   * @param key Identifies the host or route the samples belong to.
+   * @return The manager for this key.
+   */
+  @Nonnull
+  public ConnectionClassManager get(@Nonnull K key) {
+    Entry entry = mEntries.get(key);
+    if (entry == null) {
+      entry = insert(key);
+    }
+    entry.mLastAccessNs = System.nanoTime();
+    return entry.mManager;
+  }
+
+  /**
+   * Removes the manager for a key.
+   * @param key The key to remove.
+   */
+  public void remove(@Nonnull K key) {
+    mEntries.remove(key);
+  }
+
+  /**
+   * Removes every manager that has not been looked up for a while. Meant to be called
+   * periodically, off the request path.
+   * @param maxIdleMs Managers idle for longer than this many ms are removed.
+   */
+  public void evictIdle(long maxIdleMs) {
+    long now = System.nanoTime();
+    long maxIdleNs = maxIdleMs * 1000000L;
+    Iterator<Entry> iterator = mEntries.values().iterator();
+    while (iterator.hasNext()) {
+      if (now - iterator.next().mLastAccessNs > maxIdleNs) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * @return The number of managers currently held.
+   */
+  public int size() {
+    return mEntries.size();
+  }
+
+  private synchronized Entry insert(K key) {
+    Entry entry = mEntries.get(key);
+    if (entry != null) {
+      return entry;
+    }
+    if (mEntries.size() >= mMaxEntries) {
+      evictLeastRecentlyUsed();
+    }
+    entry = new Entry(new ConnectionClassManager());
+    mEntries.put(key, entry);
+    return entry;
+  }
+
+  private void evictLeastRecentlyUsed() {
+    K oldestKey = null;
+    long oldestAccess = 0;
+    for (Map.Entry<K, Entry> candidate : mEntries.entrySet()) {
+      long lastAccess = candidate.getValue().mLastAccessNs;
+      // nanoTime values may wrap, so compare differences rather than values.
+      if (oldestKey == null || lastAccess - oldestAccess < 0) {
+        oldestAccess = lastAccess;
+        oldestKey = candidate.getKey();
+      }
+    }
+    if (oldestKey != null) {
+      mEntries.remove(oldestKey);
+    }
+  }
+
+  private static class Entry {
+    final ConnectionClassManager mManager;
+    volatile long mLastAccessNs = System.nanoTime();
+
+    Entry(ConnectionClassManager manager) {
+      mManager = manager;
+    }
+  }
+}
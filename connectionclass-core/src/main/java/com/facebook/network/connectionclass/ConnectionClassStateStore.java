@@ -0,0 +1,213 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Keeps the state of a {@link ConnectionClassManager} per network in a small memory-mapped
+ * file, so that after a restart or a network switch the manager can start from what it last
+ * measured on that network instead of sitting at {@link ConnectionQuality#UNKNOWN} until enough
+ * samples arrive.
+ * </p>
+ * <p>
+ * Networks are identified by a caller-supplied string, such as an interface name, SSID or
+ * carrier token; only a 64-bit hash of it is stored. The file holds a fixed number of
+ * networks and evicts the least recently used one when full. Saving and restoring only touch
+ * a few dozen bytes of the mapping, so restoring at startup takes microseconds. Each network
+ * is stored with a checksum, and one that was only partly written, e.g. because the process
+ * died while saving it, is not restored.
+ * </p>
+ */
+public class ConnectionClassStateStore implements Closeable {
+
+  /*package*/ static final int DEFAULT_MAX_NETWORKS = 16;
+
+  private static final int MAGIC = 0x43434c53; // "CCLS"
+  private static final int VERSION = 2;
+
+  // Header: magic, version, slot count, use counter.
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+  private static final int HEADER_USE_COUNTER = 12;
+
+  // Slot: key hash (0 when empty), last use, checksum of the rest, save time, manager state.
+  private static final int SLOT_KEY_HASH = 0;
+  private static final int SLOT_LAST_USE = 8;
+  private static final int SLOT_CHECKSUM = 16;
+  private static final int SLOT_SAVED_AT_MS = 24;
+  private static final int SLOT_STATE = 32;
+  private static final int SLOT_SIZE = SLOT_STATE + ConnectionClassManager.STATE_SIZE;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final RandomAccessFile mFile;
+  private final MappedByteBuffer mBuffer;
+  private final int mSlotCount;
+
+  /**
+   * Opens or creates a store holding up to {@link #DEFAULT_MAX_NETWORKS} networks.
+   */
+  public ConnectionClassStateStore(File file) throws IOException {
+    this(file, DEFAULT_MAX_NETWORKS);
+  }
+
+  /**
+   * Opens or creates a store. A file written with a different format or size is cleared.
+   * @param file File to map.
+   * @param maxNetworks Number of networks kept before the least recently used one is evicted.
+   */
+  public ConnectionClassStateStore(File file, int maxNetworks) throws IOException {
+    if (maxNetworks <= 0) {
+      throw new IllegalArgumentException("Invalid maxNetworks " + maxNetworks + ".");
+    }
+    mSlotCount = maxNetworks;
+    int size = HEADER_SIZE + maxNetworks * SLOT_SIZE;
+    mFile = new RandomAccessFile(file, "rw");
+    try {
+      boolean valid = mFile.length() == size;
+      mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      if (!valid || mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION
+          || mBuffer.getInt(8) != maxNetworks) {
+        for (int i = 0; i < size; i++) {
+          mBuffer.put(i, (byte) 0);
+        }
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(8, maxNetworks);
+      }
+    } catch (IOException e) {
+      mFile.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Saves the current state of a manager for a network, evicting the least recently used
+   * network if the store is full.
+   */
+  public synchronized void save(String networkId, ConnectionClassManager manager) {
+    long keyHash = hash(networkId);
+    int slot = findSlot(keyHash);
+    if (slot < 0) {
+      slot = findFreeSlot();
+      mBuffer.putLong(slot + SLOT_KEY_HASH, keyHash);
+    }
+    mBuffer.putLong(slot + SLOT_LAST_USE, nextUse());
+    mBuffer.putLong(slot + SLOT_SAVED_AT_MS, System.currentTimeMillis());
+    manager.writeState(mBuffer, slot + SLOT_STATE);
+    mBuffer.putLong(slot + SLOT_CHECKSUM, checksum(slot));
+  }
+
+  /**
+   * Restores the state saved for a network into a manager.
+   * @param maxAgeMs State saved longer ago than this is ignored.
+   * @return True if state was found and restored.
+   */
+  public synchronized boolean restore(
+      String networkId,
+      ConnectionClassManager manager,
+      long maxAgeMs) {
+    int slot = findSlot(hash(networkId));
+    if (slot < 0 || mBuffer.getLong(slot + SLOT_CHECKSUM) != checksum(slot)) {
+      return false;
+    }
+    long ageMs = System.currentTimeMillis() - mBuffer.getLong(slot + SLOT_SAVED_AT_MS);
+    if (ageMs < 0 || ageMs > maxAgeMs) {
+      return false;
+    }
+    mBuffer.putLong(slot + SLOT_LAST_USE, nextUse());
+    return manager.readState(mBuffer, slot + SLOT_STATE);
+  }
+
+  /**
+   * Writes pending changes to disk and closes the file. Java cannot unmap a buffer explicitly,
+   * so the mapping itself is only released once it is garbage collected.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    mBuffer.force();
+    mFile.close();
+  }
+
+  /**
+   * @return Offset of the slot holding a key, or -1.
+   */
+  private int findSlot(long keyHash) {
+    for (int i = 0; i < mSlotCount; i++) {
+      int slot = HEADER_SIZE + i * SLOT_SIZE;
+      if (mBuffer.getLong(slot + SLOT_KEY_HASH) == keyHash) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return Offset of an empty slot, or of the least recently used one.
+   */
+  private int findFreeSlot() {
+    int oldestSlot = HEADER_SIZE;
+    long oldestUse = Long.MAX_VALUE;
+    for (int i = 0; i < mSlotCount; i++) {
+      int slot = HEADER_SIZE + i * SLOT_SIZE;
+      if (mBuffer.getLong(slot + SLOT_KEY_HASH) == 0) {
+        return slot;
+      }
+      long lastUse = mBuffer.getLong(slot + SLOT_LAST_USE);
+      if (lastUse < oldestUse) {
+        oldestUse = lastUse;
+        oldestSlot = slot;
+      }
+    }
+    return oldestSlot;
+  }
+
+  /**
+   * 64-bit FNV-1a of a slot, except for its last use, which restoring updates, and the
+   * checksum itself.
+   */
+  private long checksum(int slot) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = SLOT_KEY_HASH; i < SLOT_SIZE; i++) {
+      if (i >= SLOT_LAST_USE && i < SLOT_SAVED_AT_MS) {
+        continue;
+      }
+      hash = (hash ^ (mBuffer.get(slot + i) & 0xff)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private long nextUse() {
+    long use = mBuffer.getLong(HEADER_USE_COUNTER) + 1;
+    mBuffer.putLong(HEADER_USE_COUNTER, use);
+    return use;
+  }
+
+  /**
+   * 64-bit FNV-1a of the UTF-16 code units of a network id; 0 is reserved for empty slots.
+   */
+  /*package*/ static long hash(String networkId) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < networkId.length(); i++) {
+      char c = networkId.charAt(i);
+      hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+      hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+    return hash == 0 ? 1 : hash;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * {@link MetricsSink} that counts every event with lock-free counters, to be read and exported
+ * periodically. Also tracks how long the reported ConnectionQuality has been in each class:
+ * the time since the previous change is credited to the quality each change reports it left.
+ * </p>
+ */
+public class CountingMetricsSink implements MetricsSink {
+
+  private static final ConnectionQuality[] QUALITIES = ConnectionQuality.values();
+
+  private final AtomicLong mSamplesAccepted = new AtomicLong();
+  private final AtomicLong mSamplesDropped = new AtomicLong();
+  private final AtomicLong mTransitionsStarted = new AtomicLong();
+  private final AtomicLong mTransitionsAborted = new AtomicLong();
+  private final AtomicLong mTransitionsCommitted = new AtomicLong();
+  private final AtomicLong mPolls = new AtomicLong();
+  private final AtomicLong mPollLatencyNs = new AtomicLong();
+  private final AtomicLong mListenerDispatches = new AtomicLong();
+  private final AtomicLong mListenerDispatchLatencyNs = new AtomicLong();
+
+  /** Completed time per ConnectionQuality, by ordinal. */
+  private final AtomicLongArray mQualityTimeNs = new AtomicLongArray(QUALITIES.length);
+  /** Quality changes are serialized by the manager, so this only needs to be visible. */
+  private volatile long mLastChangeNs = System.nanoTime();
+
+  @Override
+  public void onSampleAccepted() {
+    mSamplesAccepted.incrementAndGet();
+  }
+
+  @Override
+  public void onSampleDropped() {
+    mSamplesDropped.incrementAndGet();
+  }
+
+  @Override
+  public void onTransitionStarted() {
+    mTransitionsStarted.incrementAndGet();
+  }
+
+  @Override
+  public void onTransitionAborted() {
+    mTransitionsAborted.incrementAndGet();
+  }
+
+  @Override
+  public void onTransitionCommitted() {
+    mTransitionsCommitted.incrementAndGet();
+  }
+
+  @Override
+  public void onQualityChanged(ConnectionQuality previousQuality, ConnectionQuality quality) {
+    long nowNs = System.nanoTime();
+    mQualityTimeNs.addAndGet(previousQuality.ordinal(), nowNs - mLastChangeNs);
+    mLastChangeNs = nowNs;
+  }
+
+  @Override
+  public void onPoll(long latencyNs) {
+    mPolls.incrementAndGet();
+    mPollLatencyNs.addAndGet(latencyNs);
+  }
+
+  @Override
+  public void onListenerDispatch(long latencyNs) {
+    mListenerDispatches.incrementAndGet();
+    mListenerDispatchLatencyNs.addAndGet(latencyNs);
+  }
+
+  public long getSamplesAccepted() {
+    return mSamplesAccepted.get();
+  }
+
+  public long getSamplesDropped() {
+    return mSamplesDropped.get();
+  }
+
+  public long getTransitionsStarted() {
+    return mTransitionsStarted.get();
+  }
+
+  public long getTransitionsAborted() {
+    return mTransitionsAborted.get();
+  }
+
+  public long getTransitionsCommitted() {
+    return mTransitionsCommitted.get();
+  }
+
+  public long getPolls() {
+    return mPolls.get();
+  }
+
+  /**
+   * @return Total time spent in polls, in ns.
+   */
+  public long getPollLatencyNs() {
+    return mPollLatencyNs.get();
+  }
+
+  public long getListenerDispatches() {
+    return mListenerDispatches.get();
+  }
+
+  /**
+   * @return Total time from changes until their listeners returned, in ns.
+   */
+  public long getListenerDispatchLatencyNs() {
+    return mListenerDispatchLatencyNs.get();
+  }
+
+  /**
+   * @return Time spent in a ConnectionQuality since this sink was created, up to the last change
+   *     that left it, in ms.
+   */
+  public long getTimeInQualityMs(ConnectionQuality quality) {
+    return mQualityTimeNs.get(quality.ordinal()) / 1000000;
+  }
+
+  /**
+   * @return Time since the last change of ConnectionQuality, or since this sink was created, in
+   *     ms. This is spent in the current quality, which is not credited until it changes.
+   */
+  public long getTimeSinceQualityChangeMs() {
+    return (System.nanoTime() - mLastChangeNs) / 1000000;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Moving average calculation for ConnectionClass.
+ *
+ * <p>
+ * The average is kept as its natural log, so adding a measurement costs a single
+ * {@link Math#log(double)}; callers that only compare the average against thresholds can use
+ * {@link #getLogAverage()} and never pay for the {@link Math#exp(double)}.
+ * </p>
+ */
+class ExponentialGeometricAverage implements BandwidthEstimator {
+
+  private final double mDecayConstant;
+  private final int mCutover;
+
+  /** Natural log of the average. */
+  private double mLogValue;
+  private int mCount;
+
+  public ExponentialGeometricAverage(double decayConstant) {
+    mDecayConstant = decayConstant;
+    mCutover = decayConstant == 0.0
+        ? Integer.MAX_VALUE
+        : (int) Math.ceil(1 / decayConstant);
+  }
+
+  /**
+   * Adds a new measurement to the moving average.
+   * @param measurement - Bandwidth measurement in bits/ms to add to the moving average.
+   */
+  @Override
+  public void addMeasurement(double measurement) {
+    addLogMeasurement(Math.log(measurement));
+  }
+
+  /**
+   * Adds a new measurement, given as its natural log, to the moving average.
+   * @param logMeasurement - Natural log of the measurement.
+   */
+  public void addLogMeasurement(double logMeasurement) {
+    double keepConstant = 1 - mDecayConstant;
+    if (mCount > mCutover) {
+      mLogValue = keepConstant * mLogValue + mDecayConstant * logMeasurement;
+    } else if (mCount > 0) {
+      double retained = keepConstant * mCount / (mCount + 1.0);
+      double newcomer = 1.0 - retained;
+      mLogValue = retained * mLogValue + newcomer * logMeasurement;
+    } else {
+      mLogValue = logMeasurement;
+    }
+    mCount++;
+  }
+
+  /**
+   * @return The average, or -1 if no measurement has been added.
+   */
+  public double getAverage() {
+    return mCount == 0 ? -1 : Math.exp(mLogValue);
+  }
+
+  /**
+   * @return The natural log of the average, or NaN if no measurement has been added.
+   */
+  @Override
+  public double getLogAverage() {
+    return mCount == 0 ? Double.NaN : mLogValue;
+  }
+
+  /**
+   * @return The number of measurements added since the last reset.
+   */
+  @Override
+  public int getCount() {
+    return mCount;
+  }
+
+  /**
+   * Restores a moving average saved from {@link #getLogAverage()} and {@link #getCount()}.
+   */
+  @Override
+  public void restore(double logAverage, int count) {
+    mLogValue = logAverage;
+    mCount = count;
+  }
+
+  /**
+   * Reset the moving average.
+   */
+  @Override
+  public void reset() {
+    mLogValue = 0;
+    mCount = 0;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Interfaces for publishing state with flow control, with the same methods and contract as
+ * {@code java.util.concurrent.Flow} and Reactive Streams, which are not available on the
+ * Android versions this library supports. Adapting either to these takes a few lines.
+ * </p>
+ * <p>
+ * A {@link Subscriber} only receives as many items as it has requested through its
+ * {@link Subscription}.
+ * </p>
+ */
+public final class Flow {
+
+  private Flow() {
+  }
+
+  /**
+   * Source of items for any number of subscribers.
+   */
+  public interface Publisher<T> {
+    /**
+     * Adds a subscriber, which is given its {@link Subscription} through
+     * {@link Subscriber#onSubscribe(Subscription)} before anything else.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /**
+   * Receiver of items. Calls to one subscriber never overlap.
+   */
+  public interface Subscriber<T> {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /**
+   * Link between a publisher and one of its subscribers.
+   */
+  public interface Subscription {
+    /**
+     * Allows up to {@code n} more items to be delivered. A non-positive {@code n} fails the
+     * subscription with an {@link IllegalArgumentException}.
+     */
+    void request(long n);
+
+    /**
+     * Stops the delivery of items, possibly after a few that were already on their way.
+     */
+    void cancel();
+  }
+}
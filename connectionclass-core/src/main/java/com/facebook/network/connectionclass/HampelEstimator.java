@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Geometric moving average behind a Hampel filter: a sample further from the median of the
+ * recent samples than a few times their median absolute deviation is replaced by that median
+ * before it is averaged. Isolated outliers are dropped, while a real change passes once it
+ * makes up half of the window.
+ * </p>
+ * <p>
+ * Deviations are measured between logs, i.e. as ratios of bandwidths.
+ * </p>
+ */
+public class HampelEstimator implements BandwidthEstimator {
+
+  /** Scales a median absolute deviation to the standard deviation of normal samples. */
+  private static final double MAD_TO_STANDARD_DEVIATION = 1.4826;
+  /** Samples needed before the window says anything about outliers. */
+  private static final int MIN_SAMPLES_TO_FILTER = 3;
+
+  private final SortedWindow mWindow;
+  private final double mThreshold;
+  private final ExponentialGeometricAverage mAverage;
+
+  /**
+   * @param windowSize Number of recent samples the median and deviation are taken over.
+   * @param threshold Number of standard deviations from the median beyond which a sample is
+   *     an outlier; 3 is the usual choice.
+   * @param decayConstant Weight of each new sample in the moving average, e.g. 0.05.
+   */
+  public HampelEstimator(int windowSize, double threshold, double decayConstant) {
+    mWindow = new SortedWindow(windowSize);
+    mThreshold = threshold;
+    mAverage = new ExponentialGeometricAverage(decayConstant);
+  }
+
+  /**
+   * @return A factory for managers using this estimator.
+   */
+  public static BandwidthEstimator.Factory factory(
+      final int windowSize,
+      final double threshold,
+      final double decayConstant) {
+    return new BandwidthEstimator.Factory() {
+      @Override
+      public BandwidthEstimator create() {
+        return new HampelEstimator(windowSize, threshold, decayConstant);
+      }
+    };
+  }
+
+  @Override
+  public void addMeasurement(double measurement) {
+    double logMeasurement = Math.log(measurement);
+    mWindow.add(logMeasurement);
+    if (mWindow.size() >= MIN_SAMPLES_TO_FILTER) {
+      double median = mWindow.median();
+      double limit = mThreshold * MAD_TO_STANDARD_DEVIATION
+          * mWindow.medianAbsoluteDeviation(median);
+      if (Math.abs(logMeasurement - median) > limit) {
+        logMeasurement = median;
+      }
+    }
+    mAverage.addLogMeasurement(logMeasurement);
+  }
+
+  @Override
+  public double getLogAverage() {
+    return mAverage.getLogAverage();
+  }
+
+  @Override
+  public int getCount() {
+    return mAverage.getCount();
+  }
+
+  @Override
+  public void restore(double logAverage, int count) {
+    mWindow.fill(logAverage, count);
+    mAverage.restore(logAverage, count);
+  }
+
+  @Override
+  public void reset() {
+    mWindow.clear();
+    mAverage.reset();
+  }
+}
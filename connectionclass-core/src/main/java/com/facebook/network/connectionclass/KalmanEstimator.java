@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Scalar Kalman filter over the log of the bandwidth, modelled as a random walk observed
+ * through noisy samples. Unlike a fixed decay, the gain is high while the filter is unsure of
+ * its estimate, so it settles within a few samples, then falls to a steady value set by the
+ * ratio of the two variances.
+ * </p>
+ * <p>
+ * Both variances are of natural logs: a measurement variance of 0.25 means samples are
+ * typically within a factor of e^0.5, about 1.65, of the true bandwidth.
+ * </p>
+ */
+public class KalmanEstimator implements BandwidthEstimator {
+
+  private final double mProcessVariance;
+  private final double mMeasurementVariance;
+  /** Variance of the estimate once the gain has settled, used when restoring. */
+  private final double mSteadyStateVariance;
+
+  private double mLogEstimate;
+  private double mVariance;
+  private int mCount;
+
+  /**
+   * @param processVariance How much the log of the bandwidth drifts between samples.
+   * @param measurementVariance How much the log of a sample scatters around the bandwidth.
+   */
+  public KalmanEstimator(double processVariance, double measurementVariance) {
+    if (processVariance <= 0 || measurementVariance <= 0) {
+      throw new IllegalArgumentException("Variances must be positive.");
+    }
+    mProcessVariance = processVariance;
+    mMeasurementVariance = measurementVariance;
+    // Fixed point of the predict and update steps below.
+    double prior = (processVariance
+        + Math.sqrt(processVariance * processVariance
+            + 4 * processVariance * measurementVariance)) / 2;
+    mSteadyStateVariance = prior * measurementVariance / (prior + measurementVariance);
+  }
+
+  /**
+   * @return A factory for managers using this estimator.
+   */
+  public static BandwidthEstimator.Factory factory(
+      final double processVariance,
+      final double measurementVariance) {
+    return new BandwidthEstimator.Factory() {
+      @Override
+      public BandwidthEstimator create() {
+        return new KalmanEstimator(processVariance, measurementVariance);
+      }
+    };
+  }
+
+  @Override
+  public void addMeasurement(double measurement) {
+    double logMeasurement = Math.log(measurement);
+    if (mCount == 0) {
+      mLogEstimate = logMeasurement;
+      mVariance = mMeasurementVariance;
+    } else {
+      double prior = mVariance + mProcessVariance;
+      double gain = prior / (prior + mMeasurementVariance);
+      mLogEstimate += gain * (logMeasurement - mLogEstimate);
+      mVariance = (1 - gain) * prior;
+    }
+    mCount++;
+  }
+
+  @Override
+  public double getLogAverage() {
+    return mCount == 0 ? Double.NaN : mLogEstimate;
+  }
+
+  @Override
+  public int getCount() {
+    return mCount;
+  }
+
+  @Override
+  public void restore(double logAverage, int count) {
+    mLogEstimate = logAverage;
+    mVariance = mSteadyStateVariance;
+    mCount = count;
+  }
+
+  @Override
+  public void reset() {
+    mLogEstimate = 0;
+    mVariance = 0;
+    mCount = 0;
+  }
+}
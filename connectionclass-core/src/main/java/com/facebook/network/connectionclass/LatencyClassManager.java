@@ -0,0 +1,187 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * Class used to calculate the approximate latency of a user's connection, from round trip or
+ * time-to-first-byte samples. It is the latency counterpart of {@link ConnectionClassManager}:
+ * small requests are bound by latency rather than bandwidth, so the two are tracked separately.
+ * </p>
+ * <p>
+ * Samples go through the same moving average and hysteresis as bandwidth samples, and all
+ * subscribed {@link LatencyClassStateChangeListener} are notified when the LatencyQuality
+ * changes.
+ * </p>
+ */
+public class LatencyClassManager {
+
+  /*package*/ static final double DEFAULT_SAMPLES_TO_QUALITY_CHANGE = 5;
+
+  /**
+   * Default values for determining the latency quality of a connection, in milliseconds.
+   */
+  /*package*/ static final int DEFAULT_EXCELLENT_LATENCY = 100;
+  /*package*/ static final int DEFAULT_GOOD_LATENCY = 300;
+  /*package*/ static final int DEFAULT_MODERATE_LATENCY = 1000;
+  /*package*/ static final long DEFAULT_HYSTERESIS_PERCENT = 20;
+
+  /**
+   * Samples more than this many times the current average are clamped to it before being
+   * averaged, so that a single stalled request does not drag the average into a worse class.
+   */
+  /*package*/ static final double OUTLIER_FACTOR = 4;
+  private static final double LOG_OUTLIER_FACTOR = Math.log(OUTLIER_FACTOR);
+
+  /** LatencyQuality of each band of the state machine, by increasing latency. */
+  private static final LatencyQuality[] LATENCY_QUALITIES = {
+      LatencyQuality.EXCELLENT,
+      LatencyQuality.GOOD,
+      LatencyQuality.MODERATE,
+      LatencyQuality.POOR,
+  };
+
+  /**
+   * The factor used to calculate the current latency depending upon the previous calculated
+   * value for latency.
+   */
+  private static final double DEFAULT_DECAY_CONSTANT = 0.05;
+
+  private final ExponentialGeometricAverage mLatency =
+      new ExponentialGeometricAverage(DEFAULT_DECAY_CONSTANT);
+  /** Snapshot of the natural log of the moving average, or NaN, published for lock-free reads. */
+  private volatile double mLatencyLogAverage = Double.NaN;
+  private final BandStateMachine mLatencyStateMachine = new BandStateMachine(
+      new BandTable(
+          new double[] {DEFAULT_EXCELLENT_LATENCY, DEFAULT_GOOD_LATENCY, DEFAULT_MODERATE_LATENCY},
+          DEFAULT_HYSTERESIS_PERCENT),
+      DEFAULT_SAMPLES_TO_QUALITY_CHANGE);
+  private final CopyOnWriteArrayList<LatencyClassStateChangeListener> mListenerList =
+      new CopyOnWriteArrayList<LatencyClassStateChangeListener>();
+
+  // Singleton.
+  private static class LatencyClassManagerHolder {
+    public static final LatencyClassManager instance = new LatencyClassManager();
+  }
+
+  /**
+   * Retrieval method for the LatencyClassManager singleton.
+   * @return The singleton instance of LatencyClassManager.
+   */
+  @Nonnull
+  public static LatencyClassManager getInstance() {
+    return LatencyClassManagerHolder.instance;
+  }
+
+  /*package*/ LatencyClassManager() {}
+
+  /**
+   * Adds a latency sample to the moving average. Sends a broadcast to all
+   * {@link LatencyClassStateChangeListener} if the average moves from one bucket to another
+   * (i.e. good latency -> moderate latency).
+   * @param latencyMs Round trip or time-to-first-byte of a request, in milliseconds.
+   */
+  public synchronized void addLatency(long latencyMs) {
+    //Ignore garbage values.
+    if (latencyMs <= 0) {
+      return;
+    }
+
+    double logLatency = Math.log(latencyMs);
+    double logOutlierBound = mLatency.getLogAverage() + LOG_OUTLIER_FACTOR;
+    // False while the average is still NaN.
+    if (logLatency > logOutlierBound) {
+      logLatency = logOutlierBound;
+    }
+    mLatency.addLogMeasurement(logLatency);
+    mLatencyLogAverage = mLatency.getLogAverage();
+
+    if (mLatencyStateMachine.onLogAverage(mLatencyLogAverage)
+        == BandStateMachine.CHANGE_COMMITTED) {
+      notifyListeners();
+    }
+  }
+
+  /**
+   * Resets the latency average for this instance of the latency manager.
+   */
+  public synchronized void reset() {
+    mLatency.reset();
+    mLatencyLogAverage = Double.NaN;
+    mLatencyStateMachine.reset();
+  }
+
+  /**
+   * Get the LatencyQuality that the moving latency average currently represents.
+   * @return A LatencyQuality representing the device's latency at this exact moment.
+   */
+  public LatencyQuality getCurrentLatencyQuality() {
+    return toQuality(mLatencyStateMachine.mapBand(mLatencyLogAverage));
+  }
+
+  /**
+   * Accessor method for the current latency average.
+   * @return The current latency average in milliseconds, or -1 if no average has been recorded.
+   */
+  public double getLatencyMs() {
+    double logAverage = mLatencyLogAverage;
+    return Double.isNaN(logAverage) ? -1 : Math.exp(logAverage);
+  }
+
+  private static LatencyQuality toQuality(int band) {
+    return band == BandStateMachine.UNKNOWN_BAND
+        ? LatencyQuality.UNKNOWN
+        : LATENCY_QUALITIES[band];
+  }
+
+  /**
+   * Interface for listening to when {@link LatencyClassManager} changes state.
+   */
+  public interface LatencyClassStateChangeListener {
+    /**
+     * The method that will be called when {@link LatencyClassManager} changes LatencyQuality.
+     * @param latencyState The new LatencyQuality.
+     */
+    public void onLatencyStateChange(LatencyQuality latencyState);
+  }
+
+  /**
+   * Method for adding new listeners to this class.
+   * @param listener {@link LatencyClassStateChangeListener} to add as a listener.
+   * @return The LatencyQuality the listener starts from.
+   */
+  public LatencyQuality register(LatencyClassStateChangeListener listener) {
+    if (listener != null) {
+      mListenerList.add(listener);
+    }
+    return toQuality(mLatencyStateMachine.getCurrentBand());
+  }
+
+  /**
+   * Method for removing listeners from this class.
+   * @param listener Reference to the {@link LatencyClassStateChangeListener} to be removed.
+   */
+  public void remove(LatencyClassStateChangeListener listener) {
+    if (listener != null) {
+      mListenerList.remove(listener);
+    }
+  }
+
+  private void notifyListeners() {
+    LatencyQuality quality = toQuality(mLatencyStateMachine.getCurrentBand());
+    for (LatencyClassStateChangeListener listener : mListenerList) {
+      listener.onLatencyStateChange(quality);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * An enumeration of connection qualities as seen by latency bound requests, measured as round
+ * trip or time-to-first-byte.
+ *
+ * <p>
+ * Like {@link ConnectionQuality}, qualities are declared from worst to best so that they can be
+ * compared with {@link Enum#compareTo(Enum)}.
+ * </p>
+ */
+public enum LatencyQuality {
+  /**
+   * Latency over 1000 ms.
+   */
+  POOR,
+  /**
+   * Latency between 300 and 1000 ms.
+   */
+  MODERATE,
+  /**
+   * Latency between 100 and 300 ms.
+   */
+  GOOD,
+  /**
+   * Latency under 100 ms.
+   */
+  EXCELLENT,
+  /**
+   * Placeholder for unknown latency. This is the initial value and will stay at this value
+   * until enough samples have been added.
+   */
+  UNKNOWN
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.Arrays;
+
+/**
+ * Capacity of a simulated link over time, driving a {@link NetworkSimulator}. The factory
+ * methods cover the usual scenarios; {@link #recorded(long[], double[])} replays measured
+ * capacities.
+ */
+public abstract class LinkCapacityTrace {
+
+  /**
+   * @param timeMs Time since the start of the simulation, in ms.
+   * @return Capacity of the link at that time, in kbps.
+   */
+  public abstract double getCapacityKbps(long timeMs);
+
+  /**
+   * A link that switches from one capacity to another, e.g. when moving between cells.
+   */
+  public static LinkCapacityTrace step(
+      final double kbpsBefore,
+      final double kbpsAfter,
+      final long atMs) {
+    return new LinkCapacityTrace() {
+      @Override
+      public double getCapacityKbps(long timeMs) {
+        return timeMs < atMs ? kbpsBefore : kbpsAfter;
+      }
+    };
+  }
+
+  /**
+   * A cellular link fading periodically from its peak capacity down to a fraction of it and
+   * back, geometrically.
+   * @param peakKbps Capacity at the start and at every period.
+   * @param floorRatio Capacity at the bottom of a fade, as a fraction of the peak.
+   * @param periodMs Length of a fade.
+   */
+  public static LinkCapacityTrace cellularFade(
+      final double peakKbps,
+      final double floorRatio,
+      final long periodMs) {
+    return new LinkCapacityTrace() {
+      @Override
+      public double getCapacityKbps(long timeMs) {
+        double depth = (1 - Math.cos(2 * Math.PI * timeMs / periodMs)) / 2;
+        return peakKbps * Math.pow(floorRatio, depth);
+      }
+    };
+  }
+
+  /**
+   * A Wi-Fi handoff: the link drops out entirely for a while, then resumes at another
+   * capacity.
+   */
+  public static LinkCapacityTrace wifiHandoff(
+      final double kbpsBefore,
+      final double kbpsAfter,
+      final long atMs,
+      final long gapMs) {
+    return new LinkCapacityTrace() {
+      @Override
+      public double getCapacityKbps(long timeMs) {
+        if (timeMs < atMs) {
+          return kbpsBefore;
+        }
+        return timeMs < atMs + gapMs ? 0 : kbpsAfter;
+      }
+    };
+  }
+
+  /**
+   * Capacities measured at given times, each holding until the next one.
+   * @param timesMs Strictly ascending times, starting with 0.
+   * @param kbps Capacity from each time on.
+   */
+  public static LinkCapacityTrace recorded(long[] timesMs, double[] kbps) {
+    if (timesMs.length == 0 || timesMs.length != kbps.length || timesMs[0] != 0) {
+      throw new IllegalArgumentException("Expected matching times and capacities from 0.");
+    }
+    for (int i = 1; i < timesMs.length; i++) {
+      if (timesMs[i] <= timesMs[i - 1]) {
+        throw new IllegalArgumentException("Times must be ascending.");
+      }
+    }
+    final long[] times = timesMs.clone();
+    final double[] capacities = kbps.clone();
+    return new LinkCapacityTrace() {
+      @Override
+      public double getCapacityKbps(long timeMs) {
+        int index = Arrays.binarySearch(times, timeMs);
+        // Otherwise the insertion point is one past the last time before timeMs.
+        return capacities[index >= 0 ? index : Math.max(0, -index - 2)];
+      }
+    };
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadPendingException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * {@link AsynchronousByteChannel} wrapper, typically around a
+ * {@link java.nio.channels.AsynchronousSocketChannel}, that measures the bandwidth of the
+ * transfer it reads and adds it to a {@link ConnectionClassManager}.
+ * </p>
+ * <p>
+ * Each read is timed from the moment it is started, or the previous read completed if that was
+ * only a moment before, until its completion handler runs. Since an AsynchronousByteChannel
+ * allows only one outstanding read, the same internal handler is reused for every read, so
+ * callback-style reads do not allocate. Writes are passed through.
+ * </p>
+ */
+public class MeteredAsynchronousByteChannel implements AsynchronousByteChannel {
+
+  private final AsynchronousByteChannel mChannel;
+  private final TransferMeter mMeter;
+  private final MeteringHandler mHandler = new MeteringHandler();
+
+  public MeteredAsynchronousByteChannel(
+      AsynchronousByteChannel channel,
+      ConnectionClassManager connectionClassManager) {
+    this(channel, connectionClassManager, MeteredInputStream.DEFAULT_SAMPLE_INTERVAL_MS);
+  }
+
+  /**
+   * @param channel Channel to read from.
+   * @param connectionClassManager Manager to report samples to.
+   * @param sampleIntervalMs Read time to accumulate before a sample is reported.
+   */
+  public MeteredAsynchronousByteChannel(
+      AsynchronousByteChannel channel,
+      ConnectionClassManager connectionClassManager,
+      long sampleIntervalMs) {
+    mChannel = channel;
+    mMeter = new TransferMeter(connectionClassManager, sampleIntervalMs);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <A> void read(
+      ByteBuffer destination,
+      A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    synchronized (mHandler) {
+      if (mHandler.mPending) {
+        throw new ReadPendingException();
+      }
+      mHandler.mPending = true;
+      mHandler.mHandler = (CompletionHandler<Integer, Object>) handler;
+      mHandler.mStartNs = mMeter.startRead();
+    }
+    try {
+      mChannel.read(destination, attachment, mHandler);
+    } catch (RuntimeException e) {
+      synchronized (mHandler) {
+        mHandler.mPending = false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public Future<Integer> read(ByteBuffer destination) {
+    ReadFuture future = new ReadFuture();
+    read(destination, null, future);
+    return future;
+  }
+
+  @Override
+  public <A> void write(
+      ByteBuffer source,
+      A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    mChannel.write(source, attachment, handler);
+  }
+
+  @Override
+  public Future<Integer> write(ByteBuffer source) {
+    return mChannel.write(source);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return mChannel.isOpen();
+  }
+
+  /**
+   * Reports the remainder of the transfer and closes the underlying channel.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (mHandler) {
+      mMeter.flush();
+    }
+    mChannel.close();
+  }
+
+  /**
+   * Records the completed read, then forwards to the caller's handler. Reads and completions
+   * may happen on different threads, hence the lock around the meter.
+   */
+  private class MeteringHandler implements CompletionHandler<Integer, Object> {
+    CompletionHandler<Integer, Object> mHandler;
+    long mStartNs;
+    boolean mPending;
+
+    @Override
+    public void completed(Integer result, Object attachment) {
+      CompletionHandler<Integer, Object> handler;
+      synchronized (this) {
+        mMeter.onAsynchronousRead(mStartNs, result);
+        handler = mHandler;
+        mPending = false;
+      }
+      handler.completed(result, attachment);
+    }
+
+    @Override
+    public void failed(Throwable exception, Object attachment) {
+      CompletionHandler<Integer, Object> handler;
+      synchronized (this) {
+        handler = mHandler;
+        mPending = false;
+      }
+      handler.failed(exception, attachment);
+    }
+  }
+
+  /**
+   * Future for {@link #read(ByteBuffer)}, completed by the metering handler.
+   */
+  private static class ReadFuture implements Future<Integer>, CompletionHandler<Integer, Object> {
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private volatile Integer mResult;
+    private volatile Throwable mException;
+
+    @Override
+    public void completed(Integer result, Object attachment) {
+      mResult = result;
+      mDone.countDown();
+    }
+
+    @Override
+    public void failed(Throwable exception, Object attachment) {
+      mException = exception;
+      mDone.countDown();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public boolean isDone() {
+      return mDone.getCount() == 0;
+    }
+
+    @Override
+    public Integer get() throws InterruptedException, ExecutionException {
+      mDone.await();
+      return getResult();
+    }
+
+    @Override
+    public Integer get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      if (!mDone.await(timeout, unit)) {
+        throw new TimeoutException();
+      }
+      return getResult();
+    }
+
+    private Integer getResult() throws ExecutionException {
+      if (mException != null) {
+        throw new ExecutionException(mException);
+      }
+      return mResult;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * {@link InputStream} wrapper that measures the bandwidth of the transfer it reads, and adds it
+ * to a {@link ConnectionClassManager}.
+ * </p>
+ * <p>
+ * Unlike {@link BandwidthSampler}, which polls device-wide counters, this only measures the
+ * bytes of this transfer and only the time spent waiting for them, so background traffic and
+ * pauses between reads do not skew the result. Reads do not allocate.
+ * </p>
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+  /**
+   * Read time to accumulate before a sample is reported, in ms.
+   */
+  public static final long DEFAULT_SAMPLE_INTERVAL_MS = 250;
+
+  private final TransferMeter mMeter;
+
+  public MeteredInputStream(InputStream in, ConnectionClassManager connectionClassManager) {
+    this(in, connectionClassManager, DEFAULT_SAMPLE_INTERVAL_MS);
+  }
+
+  /**
+   * @param in Stream to read from.
+   * @param connectionClassManager Manager to report samples to.
+   * @param sampleIntervalMs Read time to accumulate before a sample is reported.
+   */
+  public MeteredInputStream(
+      InputStream in,
+      ConnectionClassManager connectionClassManager,
+      long sampleIntervalMs) {
+    super(in);
+    mMeter = new TransferMeter(connectionClassManager, sampleIntervalMs);
+  }
+
+  @Override
+  public int read() throws IOException {
+    long start = mMeter.startRead();
+    int result = in.read();
+    mMeter.onRead(start, result == -1 ? -1 : 1);
+    return result;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    long start = mMeter.startRead();
+    int read = in.read(buffer, offset, length);
+    mMeter.onRead(start, read);
+    return read;
+  }
+
+  @Override
+  public long skip(long count) throws IOException {
+    long start = mMeter.startRead();
+    long skipped = in.skip(count);
+    mMeter.onRead(start, skipped);
+    return skipped;
+  }
+
+  /**
+   * Reports the remainder of the transfer and closes the underlying stream.
+   */
+  @Override
+  public void close() throws IOException {
+    mMeter.flush();
+    super.close();
+  }
+}
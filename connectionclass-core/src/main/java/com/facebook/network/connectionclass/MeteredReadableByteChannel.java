@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link ReadableByteChannel} wrapper that measures the bandwidth of the transfer it reads, and
+ * adds it to a {@link ConnectionClassManager}. See {@link MeteredInputStream}.
+ */
+public class MeteredReadableByteChannel implements ReadableByteChannel {
+
+  private final ReadableByteChannel mChannel;
+  private final TransferMeter mMeter;
+
+  public MeteredReadableByteChannel(
+      ReadableByteChannel channel,
+      ConnectionClassManager connectionClassManager) {
+    this(channel, connectionClassManager, MeteredInputStream.DEFAULT_SAMPLE_INTERVAL_MS);
+  }
+
+  /**
+   * @param channel Channel to read from.
+   * @param connectionClassManager Manager to report samples to.
+   * @param sampleIntervalMs Read time to accumulate before a sample is reported.
+   */
+  public MeteredReadableByteChannel(
+      ReadableByteChannel channel,
+      ConnectionClassManager connectionClassManager,
+      long sampleIntervalMs) {
+    mChannel = channel;
+    mMeter = new TransferMeter(connectionClassManager, sampleIntervalMs);
+  }
+
+  @Override
+  public int read(ByteBuffer destination) throws IOException {
+    long start = mMeter.startRead();
+    int read = mChannel.read(destination);
+    mMeter.onRead(start, read);
+    return read;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return mChannel.isOpen();
+  }
+
+  /**
+   * Reports the remainder of the transfer and closes the underlying channel.
+   */
+  @Override
+  public void close() throws IOException {
+    mMeter.flush();
+    mChannel.close();
+  }
+}
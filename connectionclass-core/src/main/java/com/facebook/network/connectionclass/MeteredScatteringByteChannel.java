@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * <p>
+ * {@link ScatteringByteChannel} wrapper, typically around a
+ * {@link java.nio.channels.SocketChannel}, that measures the bandwidth of the transfer it reads
+ * and adds it to a {@link ConnectionClassManager}.
+ * </p>
+ * <p>
+ * Buffers, direct or not, are handed straight to the underlying channel, so nothing is copied.
+ * In blocking mode the time spent inside reads is measured, as in {@link MeteredInputStream}.
+ * In non-blocking mode the time between reads is measured instead, since that is when the
+ * data is in flight.
+ * </p>
+ * <p>
+ * Use {@link #transferTo(FileChannel, long, long)} rather than
+ * {@link FileChannel#transferFrom} with this wrapper as the source, so that the kernel can still
+ * move the data from the socket without copying it through the heap.
+ * </p>
+ */
+public class MeteredScatteringByteChannel implements ScatteringByteChannel {
+
+  private final ScatteringByteChannel mChannel;
+  private final TransferMeter mMeter;
+
+  public MeteredScatteringByteChannel(
+      ScatteringByteChannel channel,
+      ConnectionClassManager connectionClassManager) {
+    this(channel, connectionClassManager, MeteredInputStream.DEFAULT_SAMPLE_INTERVAL_MS);
+  }
+
+  /**
+   * @param channel Channel to read from.
+   * @param connectionClassManager Manager to report samples to.
+   * @param sampleIntervalMs Transfer time to accumulate before a sample is reported.
+   */
+  public MeteredScatteringByteChannel(
+      ScatteringByteChannel channel,
+      ConnectionClassManager connectionClassManager,
+      long sampleIntervalMs) {
+    mChannel = channel;
+    mMeter = new TransferMeter(connectionClassManager, sampleIntervalMs);
+  }
+
+  @Override
+  public int read(ByteBuffer destination) throws IOException {
+    if (isNonBlocking()) {
+      int read = mChannel.read(destination);
+      mMeter.onNonBlockingRead(read);
+      return read;
+    }
+    long start = mMeter.startRead();
+    int read = mChannel.read(destination);
+    mMeter.onRead(start, read);
+    return read;
+  }
+
+  @Override
+  public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+    if (isNonBlocking()) {
+      long read = mChannel.read(destinations, offset, length);
+      mMeter.onNonBlockingRead(read);
+      return read;
+    }
+    long start = mMeter.startRead();
+    long read = mChannel.read(destinations, offset, length);
+    mMeter.onRead(start, read);
+    return read;
+  }
+
+  @Override
+  public long read(ByteBuffer[] destinations) throws IOException {
+    return read(destinations, 0, destinations.length);
+  }
+
+  /**
+   * Transfers bytes from the underlying channel straight into a file, letting the kernel avoid
+   * copies where it can, and meters the transfer. The channel should be in blocking mode.
+   * @see FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)
+   */
+  public long transferTo(FileChannel destination, long position, long count) throws IOException {
+    long start = mMeter.startRead();
+    long transferred = destination.transferFrom(mChannel, position, count);
+    mMeter.onRead(start, transferred);
+    return transferred;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return mChannel.isOpen();
+  }
+
+  /**
+   * Reports the remainder of the transfer and closes the underlying channel.
+   */
+  @Override
+  public void close() throws IOException {
+    mMeter.flush();
+    mChannel.close();
+  }
+
+  private boolean isNonBlocking() {
+    return mChannel instanceof SelectableChannel && !((SelectableChannel) mChannel).isBlocking();
+  }
+}
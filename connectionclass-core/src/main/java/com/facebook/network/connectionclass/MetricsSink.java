@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Receives events from the estimator pipeline, for counting them in production. Attach one with
+ * {@link ConnectionClassManager#setMetricsSink(MetricsSink)} and
+ * {@link BandwidthSampler#setMetricsSink(MetricsSink)}; {@link CountingMetricsSink} keeps
+ * lock-free counters of all of them.
+ * </p>
+ * <p>
+ * Methods are called inline on the sampling threads, from several threads at once, so they
+ * must be thread-safe and cheap. Nothing is measured or reported while no sink is attached.
+ * </p>
+ */
+public interface MetricsSink {
+
+  /**
+   * A sample passed the garbage filter and was added to the moving average.
+   */
+  void onSampleAccepted();
+
+  /**
+   * A sample was discarded by the garbage filter.
+   */
+  void onSampleDropped();
+
+  /**
+   * The average left the current tier, starting the count of samples before a change. A
+   * detected change point starts and commits a change with the same sample.
+   */
+  void onTransitionStarted();
+
+  /**
+   * The average went back before a started change was committed.
+   */
+  void onTransitionAborted();
+
+  /**
+   * A started change was committed and listeners will be told.
+   */
+  void onTransitionCommitted();
+
+  /**
+   * The reported ConnectionQuality changed, through a committed transition, a reset or a
+   * restore.
+   */
+  void onQualityChanged(ConnectionQuality previousQuality, ConnectionQuality quality);
+
+  /**
+   * A sampler polled its byte counter.
+   * @param latencyNs Time taken to read the counter and add the sample.
+   */
+  void onPoll(long latencyNs);
+
+  /**
+   * Listeners have been told about a change.
+   * @param latencyNs Time from the change until all listeners returned, including the time
+   *     spent waiting for the listener executor.
+   */
+  void onListenerDispatch(long latencyNs);
+}
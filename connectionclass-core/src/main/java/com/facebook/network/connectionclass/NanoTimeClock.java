@@ -0,0 +1,43 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link Clock} backed by {@link System#nanoTime()}, for use on plain JVMs.
+ */
+public class NanoTimeClock implements Clock {
+
+  private static final long NANOS_PER_MILLI = 1000000;
+
+  // Singleton.
+  private static class NanoTimeClockHolder {
+    public static final NanoTimeClock instance = new NanoTimeClock();
+  }
+
+  /**
+   * Retrieval method for the NanoTimeClock singleton.
+   * @return The singleton instance of NanoTimeClock.
+   */
+  @Nonnull
+  public static NanoTimeClock getInstance() {
+    return NanoTimeClockHolder.instance;
+  }
+
+  // Force constructor to be private.
+  private NanoTimeClock() {}
+
+  @Override
+  public long elapsedRealtime() {
+    return System.nanoTime() / NANOS_PER_MILLI;
+  }
+}
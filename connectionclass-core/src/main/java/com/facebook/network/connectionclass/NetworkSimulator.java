@@ -0,0 +1,182 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Drives a {@link ConnectionClassManager} through a {@link BandwidthSampler}, the sampler used
+ * by DeviceBandwidthSampler, from a simulated link instead of TrafficStats and a virtual clock
+ * instead of SystemClock. A simulation of hours of traffic runs in milliseconds and gives the
+ * same result every time, so the effect of the sample count and hysteresis settings can be
+ * measured on step changes, fades and handoffs.
+ * </p>
+ * <p>
+ * The link is assumed to be saturated: between two polls it delivers the integral of its
+ * capacity.
+ * </p>
+ */
+public class NetworkSimulator {
+
+  /** Resolution at which the link capacity is integrated. */
+  private static final long INTEGRATION_STEP_MS = 10;
+  private static final int BITS_PER_BYTE = 8;
+
+  private final ConnectionClassManager mManager;
+  private final LinkCapacityTrace mTrace;
+  private final long mSampleIntervalMs;
+
+  /**
+   * @param manager A fresh manager to drive.
+   * @param trace Capacity of the simulated link.
+   */
+  public NetworkSimulator(ConnectionClassManager manager, LinkCapacityTrace trace) {
+    this(manager, trace, BandwidthSamplingLoop.DEFAULT_SAMPLE_INTERVAL_MS);
+  }
+
+  /**
+   * @param manager A fresh manager to drive.
+   * @param trace Capacity of the simulated link.
+   * @param sampleIntervalMs Time between polls of the sampler.
+   */
+  public NetworkSimulator(
+      ConnectionClassManager manager,
+      LinkCapacityTrace trace,
+      long sampleIntervalMs) {
+    if (sampleIntervalMs <= 0) {
+      throw new IllegalArgumentException("Invalid sample interval " + sampleIntervalMs + ".");
+    }
+    mManager = manager;
+    mTrace = trace;
+    mSampleIntervalMs = sampleIntervalMs;
+  }
+
+  /**
+   * Runs the simulation from time 0.
+   * @param durationMs Simulated time.
+   * @return How well the manager followed the link.
+   */
+  public SimulationResult run(long durationMs) {
+    VirtualLink link = new VirtualLink();
+    BandwidthSampler sampler = new BandwidthSampler(mManager, link, link);
+    BandTable bandTable = mManager.getBandTable();
+
+    int polls = 0;
+    int truthChanges = 0;
+    int convergences = 0;
+    long totalConvergenceMs = 0;
+    long maxConvergenceMs = 0;
+    int flaps = 0;
+    int misclassifiedPolls = 0;
+    double totalLogError = 0;
+    int errorPolls = 0;
+
+    int truthTier = BandStateMachine.UNKNOWN_BAND;
+    int reportedTier = mManager.getCurrentBandwidthTier();
+    long truthChangedAtMs = -1;
+
+    sampler.startSampling();
+    sampler.addSample();
+    while (link.mTimeMs + mSampleIntervalMs <= durationMs) {
+      long startMs = link.mTimeMs;
+      link.advance(mSampleIntervalMs);
+      sampler.addSample();
+      polls++;
+
+      double truthKbps = (link.mBytes - link.mBytesAtLastAdvance) * BITS_PER_BYTE
+          / (double) (link.mTimeMs - startMs);
+      int tier = bandTable.getTier(truthKbps);
+      if (tier != truthTier) {
+        // Any change the manager has not caught up with yet is superseded.
+        truthTier = tier;
+        truthChanges++;
+        truthChangedAtMs = startMs;
+      }
+
+      int newReportedTier = mManager.getCurrentBandwidthTier();
+      if (reportedTier != BandStateMachine.UNKNOWN_BAND
+          && Math.abs(newReportedTier - truthTier) > Math.abs(reportedTier - truthTier)) {
+        flaps++;
+      }
+      reportedTier = newReportedTier;
+
+      if (reportedTier == truthTier) {
+        if (truthChangedAtMs >= 0) {
+          long convergenceMs = link.mTimeMs - truthChangedAtMs;
+          convergences++;
+          totalConvergenceMs += convergenceMs;
+          maxConvergenceMs = Math.max(maxConvergenceMs, convergenceMs);
+          truthChangedAtMs = -1;
+        }
+      } else {
+        misclassifiedPolls++;
+      }
+
+      double estimateKbps = mManager.getDownloadKBitsPerSecond();
+      if (estimateKbps > 0 && truthKbps > 0) {
+        totalLogError += Math.abs(Math.log(estimateKbps / truthKbps));
+        errorPolls++;
+      }
+    }
+    sampler.stopSampling();
+
+    return new SimulationResult(
+        polls,
+        truthChanges,
+        convergences,
+        totalConvergenceMs,
+        maxConvergenceMs,
+        flaps,
+        misclassifiedPolls,
+        errorPolls == 0 ? 0 : totalLogError / errorPolls);
+  }
+
+  /**
+   * Byte counter and clock of the simulated link, advanced by the simulation only.
+   */
+  private class VirtualLink implements ByteCounterSource, Clock {
+    long mTimeMs;
+    long mBytes;
+    long mBytesAtLastAdvance;
+    /** Bits delivered but not yet counted as a whole byte. */
+    private double mRemainderBits;
+
+    void advance(long intervalMs) {
+      mBytesAtLastAdvance = mBytes;
+      long endMs = mTimeMs + intervalMs;
+      double bits = mRemainderBits;
+      for (long t = mTimeMs; t < endMs; t += INTEGRATION_STEP_MS) {
+        long stepMs = Math.min(INTEGRATION_STEP_MS, endMs - t);
+        // kbps are bits per ms; sample the capacity in the middle of the step.
+        bits += mTrace.getCapacityKbps(t + stepMs / 2) * stepMs;
+      }
+      long bytes = (long) (bits / BITS_PER_BYTE);
+      mRemainderBits = bits - bytes * BITS_PER_BYTE;
+      mBytes += bytes;
+      mTimeMs = endMs;
+    }
+
+    @Override
+    public long getRxBytes() {
+      return mBytes;
+    }
+
+    @Override
+    public long getTxBytes() {
+      // The simulated link only carries downloads.
+      return UNSUPPORTED;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+      return mTimeMs;
+    }
+  }
+}
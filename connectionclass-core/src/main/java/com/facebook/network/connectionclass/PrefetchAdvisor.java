@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Turns the live estimate of a {@link ConnectionClassManager} into a {@link PrefetchBudget}, so
+ * that features share one policy for how much to prefetch instead of each mapping
+ * ConnectionQuality to its own table.
+ * </p>
+ * <p>
+ * The budget is a fraction of what the average bandwidth could transfer over the period. The
+ * fraction and the number of concurrent fetches grow with the ConnectionClass, leaving most of
+ * a slow link to user-initiated requests, and are halved while the estimate is unsettled. No
+ * prefetching is advised while the bandwidth is unknown.
+ * </p>
+ * <p>
+ * The last budget is reused until the bandwidth moves by more than
+ * {@link #DEFAULT_RECOMPUTE_RATIO} or the ConnectionClass or its stability changes, so the
+ * advisor can be asked before every prefetch. Thread-safe.
+ * </p>
+ */
+public class PrefetchAdvisor {
+
+  /** Relative change of the bandwidth average beyond which the budget is recomputed. */
+  /*package*/ static final double DEFAULT_RECOMPUTE_RATIO = 1.1;
+
+  private static final long BITS_PER_BYTE = 8;
+
+  /** Fraction of the estimated bandwidth available for prefetching, by ConnectionQuality. */
+  private static final double POOR_FRACTION = 0.1;
+  private static final double MODERATE_FRACTION = 0.25;
+  private static final double GOOD_FRACTION = 0.5;
+  private static final double EXCELLENT_FRACTION = 0.7;
+
+  private static final int POOR_CONCURRENCY = 1;
+  private static final int MODERATE_CONCURRENCY = 2;
+  private static final int GOOD_CONCURRENCY = 4;
+  private static final int EXCELLENT_CONCURRENCY = 6;
+
+  private final ConnectionClassManager mConnectionClassManager;
+
+  /** Last budget and the estimate it was computed from, replaced as a whole. */
+  private volatile CachedBudget mCachedBudget;
+
+  public PrefetchAdvisor(ConnectionClassManager connectionClassManager) {
+    mConnectionClassManager = connectionClassManager;
+  }
+
+  /**
+   * @param horizonMs Period to budget for, in ms.
+   * @return How much may be prefetched over the period.
+   */
+  public PrefetchBudget getBudget(long horizonMs) {
+    if (horizonMs < 0) {
+      throw new IllegalArgumentException("Invalid horizon " + horizonMs + " ms.");
+    }
+    double kbps = mConnectionClassManager.getDownloadKBitsPerSecond();
+    ConnectionQuality quality = mConnectionClassManager.getCurrentBandwidthQuality();
+    boolean unsettled = mConnectionClassManager.isBandwidthChangePending();
+
+    CachedBudget cached = mCachedBudget;
+    if (cached != null
+        && cached.mBudget.getHorizonMs() == horizonMs
+        && cached.mBudget.getQuality() == quality
+        && cached.mUnsettled == unsettled
+        && kbps <= cached.mKbps * DEFAULT_RECOMPUTE_RATIO
+        && kbps * DEFAULT_RECOMPUTE_RATIO >= cached.mKbps) {
+      return cached.mBudget;
+    }
+
+    PrefetchBudget budget = computeBudget(kbps, quality, unsettled, horizonMs);
+    mCachedBudget = new CachedBudget(budget, kbps, unsettled);
+    return budget;
+  }
+
+  /*package*/ static PrefetchBudget computeBudget(
+      double kbps,
+      ConnectionQuality quality,
+      boolean unsettled,
+      long horizonMs) {
+    double fraction;
+    int concurrency;
+    switch (quality) {
+      case POOR:
+        fraction = POOR_FRACTION;
+        concurrency = POOR_CONCURRENCY;
+        break;
+      case MODERATE:
+        fraction = MODERATE_FRACTION;
+        concurrency = MODERATE_CONCURRENCY;
+        break;
+      case GOOD:
+        fraction = GOOD_FRACTION;
+        concurrency = GOOD_CONCURRENCY;
+        break;
+      case EXCELLENT:
+        fraction = EXCELLENT_FRACTION;
+        concurrency = EXCELLENT_CONCURRENCY;
+        break;
+      default:
+        return new PrefetchBudget(0, horizonMs, 1, quality);
+    }
+    if (unsettled) {
+      fraction /= 2;
+      concurrency = Math.max(1, concurrency / 2);
+    }
+    // kbps are bits per ms.
+    long bytes = (long) (kbps * horizonMs * fraction / BITS_PER_BYTE);
+    return new PrefetchBudget(Math.max(0, bytes), horizonMs, concurrency, quality);
+  }
+
+  private static class CachedBudget {
+    final PrefetchBudget mBudget;
+    final double mKbps;
+    final boolean mUnsettled;
+
+    CachedBudget(PrefetchBudget budget, double kbps, boolean unsettled) {
+      mBudget = budget;
+      mKbps = kbps;
+      mUnsettled = unsettled;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * How much a client may prefetch over the next period, as computed by {@link PrefetchAdvisor}.
+ */
+public final class PrefetchBudget {
+
+  private final long mBytes;
+  private final long mHorizonMs;
+  private final int mMaxConcurrentFetches;
+  private final ConnectionQuality mQuality;
+
+  /*package*/ PrefetchBudget(
+      long bytes,
+      long horizonMs,
+      int maxConcurrentFetches,
+      ConnectionQuality quality) {
+    mBytes = bytes;
+    mHorizonMs = horizonMs;
+    mMaxConcurrentFetches = maxConcurrentFetches;
+    mQuality = quality;
+  }
+
+  /**
+   * @return Bytes that may be prefetched over the next {@link #getHorizonMs()} ms.
+   */
+  public long getBytes() {
+    return mBytes;
+  }
+
+  /**
+   * @return The period the budget covers, in ms.
+   */
+  public long getHorizonMs() {
+    return mHorizonMs;
+  }
+
+  /**
+   * @return Recommended number of prefetches to run at the same time; at least 1.
+   */
+  public int getMaxConcurrentFetches() {
+    return mMaxConcurrentFetches;
+  }
+
+  /**
+   * @return The ConnectionClass the budget was computed for.
+   */
+  public ConnectionQuality getQuality() {
+    return mQuality;
+  }
+
+  @Override
+  public String toString() {
+    return "PrefetchBudget{" + mBytes + " bytes in " + mHorizonMs + " ms, "
+        + mMaxConcurrentFetches + " concurrent, " + mQuality + "}";
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Base class for {@link ByteCounterSource}s that parse a Linux procfs file.
+ * </p>
+ * <p>
+ * The file is kept open and re-read from the start on every poll into a buffer that is reused
+ * between polls, and parsed in place with a {@link ByteArrayScanner}, so polling does not
+ * allocate once the buffer has grown to fit the file.
+ * </p>
+ * <p>
+ * {@link #getRxBytes()} reads the file; a {@link #getTxBytes()} right after it parses the same
+ * contents rather than reading the file again, so that both counters of one poll, as
+ * {@link BandwidthSampler} takes them, come from the same snapshot.
+ * </p>
+ */
+public abstract class ProcFileByteCounterSource implements ByteCounterSource, Closeable {
+
+  private static final int INITIAL_BUFFER_SIZE = 8192;
+
+  private final String mPath;
+  private final ByteArrayScanner mScanner = new ByteArrayScanner();
+  private byte[] mBuffer = new byte[INITIAL_BUFFER_SIZE];
+  private @Nullable RandomAccessFile mFile;
+  private int mLength;
+  /** Set while mBuffer holds a read the sent byte count has not been taken from yet. */
+  private boolean mTxPending;
+  /** Set once the file could not be opened, so that missing files aren't retried every poll. */
+  private boolean mUnavailable;
+
+  /**
+   * @param path Path of the file to parse.
+   */
+  protected ProcFileByteCounterSource(String path) {
+    mPath = path;
+  }
+
+  @Override
+  public synchronized long getRxBytes() {
+    mTxPending = false;
+    if (!read()) {
+      return UNSUPPORTED;
+    }
+    mTxPending = true;
+    return parseCounter(false);
+  }
+
+  @Override
+  public synchronized long getTxBytes() {
+    if (mTxPending) {
+      mTxPending = false;
+    } else if (!read()) {
+      return UNSUPPORTED;
+    }
+    return parseCounter(true);
+  }
+
+  private boolean read() {
+    if (mUnavailable) {
+      return false;
+    }
+    try {
+      mLength = readFile();
+      return true;
+    } catch (IOException e) {
+      close();
+      return false;
+    }
+  }
+
+  private long parseCounter(boolean transmitted) {
+    mScanner.reset(mBuffer, mLength);
+    try {
+      return transmitted ? parseTxBytes(mScanner) : parseRxBytes(mScanner);
+    } catch (NoSuchElementException e) {
+      return UNSUPPORTED;
+    } catch (NumberFormatException e) {
+      return UNSUPPORTED;
+    }
+  }
+
+  /**
+   * Parses the received byte count out of the file contents.
+   * @param scanner Scanner positioned at the start of the file, with no delimiter set.
+   * @return The received byte count, or {@link #UNSUPPORTED}.
+   * @throws NoSuchElementException If the file is truncated.
+   * @throws NumberFormatException If a counter is malformed.
+   */
+  protected abstract long parseRxBytes(ByteArrayScanner scanner);
+
+  /**
+   * Parses the sent byte count out of the file contents.
+   * @param scanner Scanner positioned at the start of the file, with no delimiter set.
+   * @return The sent byte count, or {@link #UNSUPPORTED}.
+   * @throws NoSuchElementException If the file is truncated.
+   * @throws NumberFormatException If a counter is malformed.
+   */
+  protected abstract long parseTxBytes(ByteArrayScanner scanner);
+
+  /**
+   * Closes the underlying file. It is reopened on the next poll.
+   */
+  @Override
+  public synchronized void close() {
+    if (mFile != null) {
+      try {
+        mFile.close();
+      } catch (IOException e) {
+        // Nothing useful to do; the descriptor is gone either way.
+      }
+      mFile = null;
+    }
+  }
+
+  private int readFile() throws IOException {
+    if (mFile == null) {
+      try {
+        mFile = new RandomAccessFile(mPath, "r");
+      } catch (IOException e) {
+        mUnavailable = true;
+        throw e;
+      }
+    }
+    // procfs regenerates the contents when read again from offset 0.
+    mFile.seek(0);
+    int length = 0;
+    while (true) {
+      if (length == mBuffer.length) {
+        mBuffer = Arrays.copyOf(mBuffer, mBuffer.length * 2);
+      }
+      int read = mFile.read(mBuffer, length, mBuffer.length - length);
+      if (read == -1) {
+        return length;
+      }
+      length += read;
+    }
+  }
+}
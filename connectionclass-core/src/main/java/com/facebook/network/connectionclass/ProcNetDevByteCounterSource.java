@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * {@link ByteCounterSource} summing the received and sent bytes of every interface except
+ * loopback in {@code /proc/net/dev}, or in {@code /proc/self/net/dev} for the network namespace
+ * of the current process.
+ * </p>
+ * <p>
+ * The file starts with two header lines, followed by one line per interface whose first
+ * column after the interface name is the received byte count, and whose ninth is the sent byte
+ * count:
+ * </p>
+ * <pre>
+ *   wlan0: 1839216487 1583624    0    0    0     0          0         0 ...
+ * </pre>
+ */
+public class ProcNetDevByteCounterSource extends ProcFileByteCounterSource {
+
+  public static final String PROC_NET_DEV = "/proc/net/dev";
+  public static final String PROC_SELF_NET_DEV = "/proc/self/net/dev";
+
+  private static final int HEADER_LINES = 2;
+  /** Counters before the sent byte count: the eight receive counters. */
+  private static final int TX_BYTES_INDEX = 8;
+  private static final String LOOPBACK_INTERFACE = "lo";
+
+  /**
+   * Reads {@link #PROC_NET_DEV}.
+   */
+  public ProcNetDevByteCounterSource() {
+    this(PROC_NET_DEV);
+  }
+
+  /**
+   * @param path Path of a file in the /proc/net/dev format.
+   */
+  public ProcNetDevByteCounterSource(String path) {
+    super(path);
+  }
+
+  @Override
+  protected long parseRxBytes(ByteArrayScanner scanner) {
+    return parseBytes(scanner, false);
+  }
+
+  @Override
+  protected long parseTxBytes(ByteArrayScanner scanner) {
+    return parseBytes(scanner, true);
+  }
+
+  private static long parseBytes(ByteArrayScanner scanner, boolean transmitted) {
+    for (int i = 0; i < HEADER_LINES; i++) {
+      scanner.skipLine();
+    }
+    long bytes = 0;
+    while (scanner.hasNext()) {
+      // Interface names are right-aligned, and older kernels don't put a space between the
+      // colon and the first counter.
+      scanner.useDelimiter(' ').skipDelimiters();
+      if (!scanner.hasNext()) {
+        break;
+      }
+      boolean loopback = scanner.useDelimiter(':').nextStringEquals(LOOPBACK_INTERFACE);
+      scanner.useDelimiter(' ');
+      if (transmitted) {
+        for (int i = 0; i < TX_BYTES_INDEX; i++) {
+          scanner.skipDelimiters().skip();
+        }
+      }
+      long interfaceBytes = scanner.skipDelimiters().nextLong();
+      if (!loopback) {
+        bytes += interfaceBytes;
+      }
+      scanner.skipLine();
+    }
+    return bytes;
+  }
+}
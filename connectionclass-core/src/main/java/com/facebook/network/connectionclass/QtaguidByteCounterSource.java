@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * {@link ByteCounterSource} reading the bytes received and sent by a single UID from
+ * {@code /proc/net/xt_qtaguid/stats}, so that traffic from other apps does not inflate the
+ * estimate.
+ * </p>
+ * <p>
+ * After a header line, each line holds the counters of one (interface, tag, UID, counter set)
+ * tuple:
+ * </p>
+ * <pre>
+ * idx iface acct_tag_hex uid_tag_int cnt_set rx_bytes rx_packets tx_bytes ...
+ * 2 wlan0 0x0 10045 0 1839216 1583 183524 ...
+ * </pre>
+ * <p>
+ * Only untagged lines are summed, since tagged lines repeat bytes already counted under tag 0.
+ * Both the background and foreground counter sets are included.
+ * </p>
+ */
+public class QtaguidByteCounterSource extends ProcFileByteCounterSource {
+
+  public static final String PROC_XT_QTAGUID_STATS = "/proc/net/xt_qtaguid/stats";
+
+  private static final String UNTAGGED = "0x0";
+  private static final String LOOPBACK_INTERFACE = "lo";
+
+  private final long mUid;
+
+  /**
+   * Reads {@link #PROC_XT_QTAGUID_STATS}.
+   * @param uid UID whose received bytes to count, usually {@code android.os.Process.myUid()}.
+   */
+  public QtaguidByteCounterSource(int uid) {
+    this(PROC_XT_QTAGUID_STATS, uid);
+  }
+
+  /**
+   * @param path Path of a file in the xt_qtaguid stats format.
+   * @param uid UID whose received bytes to count.
+   */
+  public QtaguidByteCounterSource(String path, int uid) {
+    super(path);
+    mUid = uid;
+  }
+
+  @Override
+  protected long parseRxBytes(ByteArrayScanner scanner) {
+    return parseBytes(scanner, false);
+  }
+
+  @Override
+  protected long parseTxBytes(ByteArrayScanner scanner) {
+    return parseBytes(scanner, true);
+  }
+
+  private long parseBytes(ByteArrayScanner scanner, boolean transmitted) {
+    scanner.skipLine();
+    scanner.useDelimiter(' ');
+    long bytes = 0;
+    while (scanner.hasNext()) {
+      scanner.skip(); // idx
+      boolean loopback = scanner.nextStringEquals(LOOPBACK_INTERFACE);
+      boolean untagged = scanner.nextStringEquals(UNTAGGED);
+      long uid = scanner.nextLong();
+      scanner.skip(); // cnt_set
+      if (!loopback && untagged && uid == mUid) {
+        if (transmitted) {
+          scanner.skip(); // rx_bytes
+          scanner.skip(); // rx_packets
+        }
+        bytes += scanner.nextLong();
+      }
+      scanner.skipLine();
+    }
+    return bytes;
+  }
+}
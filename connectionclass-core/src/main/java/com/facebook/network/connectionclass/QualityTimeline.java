@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * The changes of ConnectionClass seen while replaying a trace with
+ * {@link BandwidthTraceReplayer}, in order.
+ */
+public final class QualityTimeline {
+
+  private final long[] mTimestampsMs;
+  private final long[] mSampleIndexes;
+  private final int[] mTiers;
+  private final ConnectionQuality[] mQualities;
+  private final int mChangeCount;
+  private final long mSampleCount;
+
+  /*package*/ QualityTimeline(
+      long[] timestampsMs,
+      long[] sampleIndexes,
+      int[] tiers,
+      ConnectionQuality[] qualities,
+      int changeCount,
+      long sampleCount) {
+    mTimestampsMs = timestampsMs;
+    mSampleIndexes = sampleIndexes;
+    mTiers = tiers;
+    mQualities = qualities;
+    mChangeCount = changeCount;
+    mSampleCount = sampleCount;
+  }
+
+  /**
+   * @return The number of changes of ConnectionClass.
+   */
+  public int getChangeCount() {
+    return mChangeCount;
+  }
+
+  /**
+   * @return The number of samples replayed.
+   */
+  public long getSampleCount() {
+    return mSampleCount;
+  }
+
+  /**
+   * @return The recording time of the sample causing a change, in ms.
+   */
+  public long getTimestampMs(int change) {
+    checkIndex(change);
+    return mTimestampsMs[change];
+  }
+
+  /**
+   * @return The index in the trace of the sample causing a change.
+   */
+  public long getSampleIndex(int change) {
+    checkIndex(change);
+    return mSampleIndexes[change];
+  }
+
+  /**
+   * @return The tier of the manager's {@link BandTable} after a change.
+   */
+  public int getTier(int change) {
+    checkIndex(change);
+    return mTiers[change];
+  }
+
+  /**
+   * @return The ConnectionClass after a change.
+   */
+  public ConnectionQuality getQuality(int change) {
+    checkIndex(change);
+    return mQualities[change];
+  }
+
+  private void checkIndex(int change) {
+    if (change < 0 || change >= mChangeCount) {
+      throw new IndexOutOfBoundsException("Change " + change + " of " + mChangeCount + ".");
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Constant-memory streaming quantile estimate of positive measurements, used next to
+ * {@link ExponentialGeometricAverage} where a single mean is not enough (for example to pick a
+ * conservative p10 bitrate).
+ * </p>
+ * <p>
+ * Measurements are counted in log-linear buckets: every power of two is split into
+ * {@code 2^SUB_BUCKET_BITS} equal sub-buckets, whose index is read straight off the exponent and
+ * the top mantissa bits of the double, so an insertion is a couple of shifts and an array
+ * increment with no allocation and no transcendental calls. Quantiles are accurate to within
+ * half a sub-bucket, about 3% of the value.
+ * </p>
+ * <p>
+ * To follow changing conditions, all counts are halved whenever the number of measurements
+ * reaches the aging threshold, so older measurements weigh less and less. Counts are kept in
+ * fixed point, so that a bucket holding a single measurement fades like the others instead of
+ * being dropped by the first halving.
+ * </p>
+ */
+class QuantileHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MANTISSA_BITS = 52;
+
+  /** Smallest power of two with its own buckets; anything smaller lands in the first bucket. */
+  private static final int MIN_EXPONENT = 0;
+  /** Largest power of two with its own buckets; anything larger lands in the last bucket. */
+  private static final int MAX_EXPONENT = 34;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+  /** Fraction bits of the counts, i.e. halvings before a single measurement is forgotten. */
+  private static final int FRACTION_BITS = 16;
+  private static final long ONE = 1L << FRACTION_BITS;
+
+  /** Counts per bucket, in units of 1 / ONE measurement. */
+  private final long[] mCounts = new long[BUCKET_COUNT];
+  private final long mAgingThreshold;
+  /** Sum of mCounts. */
+  private long mTotal;
+
+  /**
+   * @param agingThreshold Number of measurements after which all counts are halved.
+   */
+  public QuantileHistogram(long agingThreshold) {
+    if (agingThreshold < 2) {
+      throw new IllegalArgumentException("Invalid aging threshold " + agingThreshold + ".");
+    }
+    // Age as soon as the rounded up count reaches the threshold.
+    mAgingThreshold = (agingThreshold - 1) * ONE;
+  }
+
+  /**
+   * Adds a new measurement to the histogram.
+   * @param measurement - Positive measurement; other values are ignored.
+   */
+  public void addMeasurement(double measurement) {
+    if (!(measurement > 0)) {
+      return;
+    }
+    mCounts[bucketOf(measurement)] += ONE;
+    mTotal += ONE;
+    if (mTotal > mAgingThreshold) {
+      age();
+    }
+  }
+
+  /**
+   * @param quantile Quantile to estimate, between 0 and 1.
+   * @return The estimated quantile of the measurements, or -1 if there are none.
+   */
+  public double getQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Invalid quantile " + quantile + ".");
+    }
+    if (mTotal == 0) {
+      return -1;
+    }
+    // Rank of the measurement to look for, from 1 to mTotal.
+    long rank = Math.max(1, (long) Math.ceil(quantile * mTotal));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += mCounts[i];
+      if (seen >= rank) {
+        return midpointOf(i);
+      }
+    }
+    return midpointOf(BUCKET_COUNT - 1);
+  }
+
+  /**
+   * @return The number of measurements currently counted, after aging.
+   */
+  public long getCount() {
+    // Rounded up, so that faded measurements still count as some.
+    return (mTotal + ONE - 1) >> FRACTION_BITS;
+  }
+
+  /**
+   * Forget all measurements.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      mCounts[i] = 0;
+    }
+    mTotal = 0;
+  }
+
+  private void age() {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long count = mCounts[i] >>> 1;
+      mCounts[i] = count;
+      total += count;
+    }
+    mTotal = total;
+  }
+
+  /*package*/ static int bucketOf(double measurement) {
+    int exponent = Math.getExponent(measurement);
+    if (exponent < MIN_EXPONENT) {
+      return 0;
+    }
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (Double.doubleToRawLongBits(measurement)
+        >>> (MANTISSA_BITS - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return ((exponent - MIN_EXPONENT) << SUB_BUCKET_BITS) | subBucket;
+  }
+
+  /*package*/ static double midpointOf(int bucket) {
+    int exponent = (bucket >> SUB_BUCKET_BITS) + MIN_EXPONENT;
+    int subBucket = bucket & (SUB_BUCKET_COUNT - 1);
+    return Math.scalb(1.0 + (subBucket + 0.5) / SUB_BUCKET_COUNT, exponent);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * How well a manager followed a simulated link, as reported by {@link NetworkSimulator}. The
+ * ground truth at each poll is the tier of the link's average capacity since the previous
+ * poll, in the manager's {@link BandTable}.
+ */
+public final class SimulationResult {
+
+  private final int mPolls;
+  private final int mTruthChanges;
+  private final int mConvergences;
+  private final long mTotalConvergenceMs;
+  private final long mMaxConvergenceMs;
+  private final int mFlaps;
+  private final int mMisclassifiedPolls;
+  private final double mMeanLogError;
+
+  /*package*/ SimulationResult(
+      int polls,
+      int truthChanges,
+      int convergences,
+      long totalConvergenceMs,
+      long maxConvergenceMs,
+      int flaps,
+      int misclassifiedPolls,
+      double meanLogError) {
+    mPolls = polls;
+    mTruthChanges = truthChanges;
+    mConvergences = convergences;
+    mTotalConvergenceMs = totalConvergenceMs;
+    mMaxConvergenceMs = maxConvergenceMs;
+    mFlaps = flaps;
+    mMisclassifiedPolls = misclassifiedPolls;
+    mMeanLogError = meanLogError;
+  }
+
+  /**
+   * @return The number of polls simulated.
+   */
+  public int getPolls() {
+    return mPolls;
+  }
+
+  /**
+   * @return The number of times the true tier changed, including the initial one.
+   */
+  public int getTruthChanges() {
+    return mTruthChanges;
+  }
+
+  /**
+   * @return The number of true tier changes the manager caught up with before the next one.
+   */
+  public int getConvergences() {
+    return mConvergences;
+  }
+
+  /**
+   * @return Mean time from a change of the true tier until the manager reported it, over the
+   *     changes it caught up with, in ms; -1 if there were none.
+   */
+  public long getMeanConvergenceMs() {
+    return mConvergences == 0 ? -1 : mTotalConvergenceMs / mConvergences;
+  }
+
+  /**
+   * @return Longest time from a change of the true tier until the manager reported it, in ms.
+   */
+  public long getMaxConvergenceMs() {
+    return mMaxConvergenceMs;
+  }
+
+  /**
+   * @return The number of tier changes the manager reported that moved it further away from
+   *     the true tier.
+   */
+  public int getFlaps() {
+    return mFlaps;
+  }
+
+  /**
+   * @return Fraction of polls at which the manager's tier differed from the true tier.
+   */
+  public double getMisclassifiedFraction() {
+    return mPolls == 0 ? 0 : mMisclassifiedPolls * 1.0 / mPolls;
+  }
+
+  /**
+   * @return Geometric mean of the ratio between the estimated bandwidth and the true capacity,
+   *     minus one; e.g. 0.2 when the estimate is typically 20% off.
+   */
+  public double getMeanRelativeError() {
+    return Math.exp(mMeanLogError) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "SimulationResult{polls=" + mPolls
+        + ", truthChanges=" + mTruthChanges
+        + ", convergences=" + mConvergences
+        + ", meanConvergenceMs=" + getMeanConvergenceMs()
+        + ", maxConvergenceMs=" + mMaxConvergenceMs
+        + ", flaps=" + mFlaps
+        + ", misclassified=" + getMisclassifiedFraction()
+        + ", meanRelativeError=" + getMeanRelativeError() + "}";
+  }
+}
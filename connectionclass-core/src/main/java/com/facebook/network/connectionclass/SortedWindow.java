@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The last few values added, kept both in arrival order and sorted, for the windowed median
+ * and the median absolute deviation. Adding a value finds its place and the place of the value
+ * it evicts by binary search; the shift that follows is a single arraycopy of at most the
+ * window size.
+ * </p>
+ * <p>
+ * Both {@link #add(double)} and {@link #medianAbsoluteDeviation(double)} are therefore
+ * O(window), which is chosen deliberately over an indexable tree: for the small windows this is
+ * meant for, a contiguous copy beats pointer chasing and allocates nothing. With
+ * {@code BandwidthEstimatorBenchmark} at a window of 9, a sample costs ~60-70 ns with the median
+ * estimator and ~75-100 ns with the Hampel filter, against ~30 ns for the moving average and
+ * ~38 ns for the Kalman filter. It grows with the window: at 33 the Hampel filter takes ~250 ns,
+ * at 129 the median ~180 ns and the Hampel filter ~660 ns. Windows in the hundreds would call
+ * for a different structure.
+ * </p>
+ */
+/*package*/ class SortedWindow {
+
+  /** Values in arrival order, oldest at mHead once full. */
+  private final double[] mRing;
+  /** The same values in ascending order, in the first mSize slots. */
+  private final double[] mSorted;
+  private int mHead;
+  private int mSize;
+
+  /*package*/ SortedWindow(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid window size " + capacity + ".");
+    }
+    mRing = new double[capacity];
+    mSorted = new double[capacity];
+  }
+
+  /**
+   * Adds a value, evicting the oldest one if the window is full.
+   */
+  /*package*/ void add(double value) {
+    if (mSize == mRing.length) {
+      int evicted = Arrays.binarySearch(mSorted, 0, mSize, mRing[mHead]);
+      System.arraycopy(mSorted, evicted + 1, mSorted, evicted, mSize - evicted - 1);
+      mSize--;
+    }
+    int index = Arrays.binarySearch(mSorted, 0, mSize, value);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    System.arraycopy(mSorted, index, mSorted, index + 1, mSize - index);
+    mSorted[index] = value;
+    mSize++;
+    mRing[mHead] = value;
+    mHead = (mHead + 1) % mRing.length;
+  }
+
+  /**
+   * Replaces the contents with copies of a single value.
+   */
+  /*package*/ void fill(double value, int count) {
+    clear();
+    for (int i = 0; i < Math.min(count, mRing.length); i++) {
+      add(value);
+    }
+  }
+
+  /*package*/ void clear() {
+    mHead = 0;
+    mSize = 0;
+  }
+
+  /*package*/ int size() {
+    return mSize;
+  }
+
+  /**
+   * @return The median of the values; only valid when not empty.
+   */
+  /*package*/ double median() {
+    return (mSorted[(mSize - 1) / 2] + mSorted[mSize / 2]) / 2;
+  }
+
+  /**
+   * Finds the median of the distances to {@code median} by merging the values below it and
+   * the values above it outwards, both of which are already sorted by distance.
+   * @return The median absolute deviation; only valid when not empty.
+   */
+  /*package*/ double medianAbsoluteDeviation(double median) {
+    int right = Arrays.binarySearch(mSorted, 0, mSize, median);
+    if (right < 0) {
+      right = -right - 1;
+    }
+    int left = right - 1;
+    int lowerRank = (mSize - 1) / 2;
+    int upperRank = mSize / 2;
+    double lower = 0;
+    double upper = 0;
+    for (int rank = 0; rank <= upperRank; rank++) {
+      double deviation;
+      if (right >= mSize
+          || (left >= 0 && median - mSorted[left] <= mSorted[right] - median)) {
+        deviation = median - mSorted[left--];
+      } else {
+        deviation = mSorted[right++] - median;
+      }
+      if (rank == lowerRank) {
+        lower = deviation;
+      }
+      upper = deviation;
+    }
+    return (lower + upper) / 2;
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * <p>
+ * Accumulates the bytes and the time of a single transfer, and reports them to a
+ * {@link ConnectionClassManager} once enough transfer time has built up.
+ * </p>
+ * <p>
+ * For blocking reads only the time spent inside reads is counted, so gaps where the caller is
+ * busy with the data do not lower the measured bandwidth. The flip side is that data arriving
+ * during such a gap, or before the first read, is returned by the next read without waiting
+ * and credited to it alone, so a caller slower than the link measures somewhat high.
+ * </p>
+ * <p>
+ * Non-blocking and asynchronous reads wait for data between reads rather than inside them, so
+ * for those the time since the previous read is counted, unless it is longer than the sample
+ * interval, in which case the transfer is taken to have paused. Not thread-safe; a transfer is
+ * read by one thread at a time.
+ * </p>
+ */
+class TransferMeter {
+
+  private static final long NANOS_PER_MILLI = 1000000;
+
+  private final ConnectionClassManager mConnectionClassManager;
+  private final long mSampleIntervalNs;
+
+  private long mBytes;
+  private long mElapsedNs;
+  private long mLastReadNs;
+  private boolean mHasLastRead;
+  private boolean mHasReported;
+
+  /**
+   * @param connectionClassManager Manager to report samples to.
+   * @param sampleIntervalMs Read time to accumulate before reporting a sample.
+   */
+  TransferMeter(ConnectionClassManager connectionClassManager, long sampleIntervalMs) {
+    mConnectionClassManager = connectionClassManager;
+    mSampleIntervalNs = sampleIntervalMs * NANOS_PER_MILLI;
+  }
+
+  /**
+   * @return The current time, to be passed to {@link #onRead(long, long)} when the read returns.
+   */
+  long startRead() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records a completed blocking read.
+   * @param startNs The value returned by {@link #startRead()} before the read.
+   * @param bytes Bytes read, or a negative value at end of stream.
+   */
+  void onRead(long startNs, long bytes) {
+    mElapsedNs += System.nanoTime() - startNs;
+    if (bytes > 0) {
+      mBytes += bytes;
+    }
+    if (mElapsedNs >= mSampleIntervalNs) {
+      report();
+    }
+  }
+
+  /**
+   * Records a completed asynchronous read, along with the gap since the previous one completed
+   * unless it was a pause.
+   * @param startNs The value returned by {@link #startRead()} when the read was started.
+   * @param bytes Bytes read, or a negative value at end of stream.
+   */
+  void onAsynchronousRead(long startNs, long bytes) {
+    long now = System.nanoTime();
+    if (mHasLastRead && startNs - mLastReadNs <= mSampleIntervalNs) {
+      mElapsedNs += now - mLastReadNs;
+    } else {
+      mElapsedNs += now - startNs;
+    }
+    if (bytes > 0) {
+      mBytes += bytes;
+    }
+    mLastReadNs = now;
+    mHasLastRead = true;
+    if (mElapsedNs >= mSampleIntervalNs) {
+      report();
+    }
+  }
+
+  /**
+   * Records a read on a non-blocking channel. Such reads return immediately and the wait for
+   * data happens between them, so the time since the previous read is what counts, unless it
+   * is longer than the sample interval, in which case the transfer is assumed to have been idle
+   * and the read is left out.
+   * @param bytes Bytes read, or a negative value at end of stream.
+   */
+  void onNonBlockingRead(long bytes) {
+    long now = System.nanoTime();
+    long sinceLastRead = now - mLastReadNs;
+    if (mHasLastRead && sinceLastRead <= mSampleIntervalNs) {
+      mElapsedNs += sinceLastRead;
+      if (bytes > 0) {
+        mBytes += bytes;
+      }
+    }
+    mLastReadNs = now;
+    mHasLastRead = true;
+    if (mElapsedNs >= mSampleIntervalNs) {
+      report();
+    }
+  }
+
+  /**
+   * Reports whatever has been accumulated at the end of the transfer, provided at least a
+   * millisecond of read time. After full samples, the shorter tail is dropped instead: it starts
+   * with what was left of a burst when the previous sample was cut, so over less than a sample
+   * it reads too high.
+   */
+  void flush() {
+    if (mHasReported) {
+      mBytes = 0;
+      mElapsedNs = 0;
+      return;
+    }
+    report();
+  }
+
+  private void report() {
+    long elapsedMs = mElapsedNs / NANOS_PER_MILLI;
+    if (elapsedMs > 0) {
+      mHasReported = true;
+      mConnectionClassManager.addBandwidth(mBytes, elapsedMs);
+      mBytes = 0;
+      // Keep the sub-millisecond remainder for the next sample.
+      mElapsedNs -= elapsedMs * NANOS_PER_MILLI;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+/**
+ * Estimates bandwidth as the median of the last few samples. A single outlier moves the
+ * estimate by at most one rank, whatever its size, and a real change shows once it makes up
+ * half of the window.
+ */
+public class WindowedMedianEstimator implements BandwidthEstimator {
+
+  private final SortedWindow mWindow;
+  private int mCount;
+
+  /**
+   * @param windowSize Number of recent samples to take the median of; odd sizes avoid
+   *     averaging the two middle samples.
+   */
+  public WindowedMedianEstimator(int windowSize) {
+    mWindow = new SortedWindow(windowSize);
+  }
+
+  /**
+   * @return A factory for managers using this estimator.
+   */
+  public static BandwidthEstimator.Factory factory(final int windowSize) {
+    return new BandwidthEstimator.Factory() {
+      @Override
+      public BandwidthEstimator create() {
+        return new WindowedMedianEstimator(windowSize);
+      }
+    };
+  }
+
+  @Override
+  public void addMeasurement(double measurement) {
+    mWindow.add(Math.log(measurement));
+    mCount++;
+  }
+
+  @Override
+  public double getLogAverage() {
+    // The log of the median is the median of the logs.
+    return mWindow.size() == 0 ? Double.NaN : mWindow.median();
+  }
+
+  @Override
+  public int getCount() {
+    return mCount;
+  }
+
+  @Override
+  public void restore(double logAverage, int count) {
+    mWindow.fill(logAverage, count);
+    mCount = count;
+  }
+
+  @Override
+  public void reset() {
+    mWindow.clear();
+    mCount = 0;
+  }
+}
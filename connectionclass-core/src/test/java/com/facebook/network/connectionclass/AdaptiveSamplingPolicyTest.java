@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSamplingPolicyTest {
+
+  @Test
+  public void testBacksOffWhileIdle() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 1000, 8000, 60);
+    assertEquals(1000, policy.nextIntervalMs(-1));
+    assertEquals(2000, policy.nextIntervalMs(0));
+    assertEquals(4000, policy.nextIntervalMs(0));
+    assertEquals(8000, policy.nextIntervalMs(0));
+    assertEquals(8000, policy.nextIntervalMs(0));
+  }
+
+  @Test
+  public void testTightensDuringTransfer() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 1000, 8000, 60);
+    assertEquals(500, policy.nextIntervalMs(1000000));
+    assertEquals(250, policy.nextIntervalMs(1000000));
+    assertEquals(250, policy.nextIntervalMs(1000000));
+    assertEquals(500, policy.nextIntervalMs(0));
+  }
+
+  @Test
+  public void testCapsWakeupsPerMinute() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 250, 8000, 20);
+    List<Long> wakeups = new ArrayList<Long>();
+    long now = 0;
+    // Short sessions back to back, each opened by an immediate poll.
+    for (int session = 0; session < 20; session++) {
+      policy.reset();
+      wakeups.add(now);
+      for (int i = 0; i < 10; i++) {
+        now += policy.nextIntervalMs(1000000);
+        wakeups.add(now);
+      }
+    }
+    assertTrue(maxWakeupsInAMinute(wakeups) <= 20);
+  }
+
+  @Test
+  public void testKeepsBudgetAcrossReset() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 250, 8000, 10);
+    // The bucket holds a single wakeup, which the first poll spends.
+    assertEquals(250, policy.nextIntervalMs(1000000));
+    assertEquals(6000, policy.nextIntervalMs(1000000));
+    policy.reset();
+    assertTrue(policy.nextIntervalMs(-1) > 6000);
+  }
+
+  @Test
+  public void testSpreadsWakeupsDuringSustainedTransfer() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy();
+    List<Long> wakeups = new ArrayList<Long>();
+    long now = 0;
+    long longest = 0;
+    policy.reset();
+    wakeups.add(now);
+    for (int i = 0; i < 1000; i++) {
+      long interval = policy.nextIntervalMs(1000000);
+      longest = Math.max(longest, interval);
+      now += interval;
+      wakeups.add(now);
+    }
+    assertEquals(AdaptiveSamplingPolicy.DEFAULT_MAX_WAKEUPS_PER_MINUTE,
+        maxWakeupsInAMinute(wakeups));
+    // Never a gap longer than it takes to earn one wakeup back.
+    assertTrue(longest <= 60000 / 50);
+  }
+
+  @Test
+  public void testRateUsesStretchedInterval() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 1000, 120000, 2);
+    policy.nextIntervalMs(-1);
+    policy.nextIntervalMs(1000000);
+    policy.nextIntervalMs(1000000);
+    // Out of budget, so intervals are stretched to ~30 s. 10 kB over that is an idle link
+    // (though it would look busy over the 250 ms the traffic alone asked for), so the policy
+    // keeps backing off until it asks for more than the budget requires.
+    long longest = 0;
+    for (int i = 0; i < 10; i++) {
+      longest = Math.max(longest, policy.nextIntervalMs(10000));
+    }
+    assertEquals(120000, longest);
+  }
+
+  @Test
+  public void testReset() {
+    AdaptiveSamplingPolicy policy = new AdaptiveSamplingPolicy(250, 1000, 8000, 60);
+    policy.nextIntervalMs(0);
+    policy.nextIntervalMs(0);
+    policy.reset();
+    assertEquals(1000, policy.nextIntervalMs(-1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidIntervals() {
+    new AdaptiveSamplingPolicy(1000, 500, 8000, 60);
+  }
+
+  /** @return Most wakeups found in any window [t, t + 60 s). */
+  private static int maxWakeupsInAMinute(List<Long> wakeups) {
+    int max = 0;
+    int first = 0;
+    for (int last = 0; last < wakeups.size(); last++) {
+      while (wakeups.get(last) - wakeups.get(first) >= 60000) {
+        first++;
+      }
+      max = Math.max(max, last - first + 1);
+    }
+    return max;
+  }
+}
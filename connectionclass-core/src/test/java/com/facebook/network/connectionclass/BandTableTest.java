@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BandTableTest {
+
+  /** Rungs of a bitrate ladder, in kbps. */
+  private static final double[] LADDER =
+      {200, 400, 700, 1000, 1500, 2500, 4000, 6000, 8000, 12000, 16000};
+
+  @Test
+  public void testGetTier() {
+    BandTable table = new BandTable(LADDER, 10);
+    assertEquals(12, table.getTierCount());
+    assertEquals(0, table.getTier(1));
+    assertEquals(0, table.getTier(199));
+    assertEquals(1, table.getTier(200));
+    assertEquals(5, table.getTier(2000));
+    assertEquals(10, table.getTier(15999));
+    assertEquals(11, table.getTier(16000));
+    assertEquals(11, table.getTier(1e9));
+  }
+
+  @Test
+  public void testPerTierHysteresis() {
+    BandTable table = new BandTable(new double[] {100, 1000}, new double[] {0, 50, 10});
+    double log1100 = Math.log(1100);
+    double log1500 = Math.log(1500);
+    // Tier 1 needs the average 50% past its edge, tier 0 none at all.
+    assertFalse(table.isSignificantlyOutside(1, log1500));
+    assertTrue(table.isSignificantlyOutside(1, Math.log(2001)));
+    assertTrue(table.isSignificantlyOutside(0, Math.log(101)));
+    assertFalse(table.isSignificantlyOutside(2, log1100));
+    assertTrue(table.isSignificantlyOutside(2, Math.log(899)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsUnsortedBounds() {
+    new BandTable(new double[] {100, 100}, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsWrongHysteresisCount() {
+    new BandTable(new double[] {100, 200}, new double[] {10, 10});
+  }
+
+  @Test
+  public void testManagerWithLadder() {
+    ConnectionQuality[] qualities = new ConnectionQuality[LADDER.length + 1];
+    for (int i = 0; i < qualities.length; i++) {
+      qualities[i] = i < 2 ? ConnectionQuality.POOR
+          : i < 4 ? ConnectionQuality.MODERATE
+          : i < 6 ? ConnectionQuality.GOOD
+          : ConnectionQuality.EXCELLENT;
+    }
+    ConnectionClassManager manager =
+        new ConnectionClassManager(new BandTable(LADDER, 10), qualities);
+    final List<ConnectionClassChangeEvent> events = new ArrayList<ConnectionClassChangeEvent>();
+    manager.registerChangeListener(new ConnectionClassManager.ConnectionClassChangeListener() {
+      @Override
+      public void onConnectionClassChange(ConnectionClassChangeEvent event) {
+        events.add(event);
+      }
+    });
+
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      // 3000 kbps.
+      manager.addBandwidth(750, 2);
+    }
+    assertEquals(6, manager.getCurrentBandwidthTier());
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+    assertEquals(1, events.size());
+    assertEquals(-1, events.get(0).getPreviousTier());
+    assertEquals(6, events.get(0).getTier());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testManagerRejectsMismatchedQualities() {
+    new ConnectionClassManager(new BandTable(LADDER, 10), new ConnectionQuality[] {
+        ConnectionQuality.POOR, ConnectionQuality.GOOD});
+  }
+}
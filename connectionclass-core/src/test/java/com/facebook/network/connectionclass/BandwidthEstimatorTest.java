@@ -0,0 +1,127 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BandwidthEstimatorTest {
+
+  @Test
+  public void testSortedWindowMatchesSorting() {
+    Random random = new Random(7);
+    SortedWindow window = new SortedWindow(8);
+    double[] recent = new double[8];
+    for (int i = 0; i < 100; i++) {
+      double value = random.nextInt(20);
+      window.add(value);
+      recent[i % 8] = value;
+
+      int size = Math.min(i + 1, 8);
+      double[] sorted = Arrays.copyOf(recent, size);
+      Arrays.sort(sorted);
+      double median = (sorted[(size - 1) / 2] + sorted[size / 2]) / 2;
+      double[] deviations = new double[size];
+      for (int j = 0; j < size; j++) {
+        deviations[j] = Math.abs(sorted[j] - median);
+      }
+      Arrays.sort(deviations);
+      assertEquals(median, window.median(), 0);
+      assertEquals(
+          (deviations[(size - 1) / 2] + deviations[size / 2]) / 2,
+          window.medianAbsoluteDeviation(median),
+          0);
+    }
+  }
+
+  @Test
+  public void testWindowedMedianIgnoresOutlier() {
+    WindowedMedianEstimator estimator = new WindowedMedianEstimator(5);
+    assertTrue(Double.isNaN(estimator.getLogAverage()));
+    estimator.addMeasurement(100);
+    estimator.addMeasurement(110);
+    estimator.addMeasurement(1000000);
+    estimator.addMeasurement(90);
+    estimator.addMeasurement(100);
+    assertEquals(100, Math.exp(estimator.getLogAverage()), 1e-9);
+    assertEquals(5, estimator.getCount());
+
+    // A lasting change shows once it makes up half of the window.
+    for (int i = 0; i < 5; i++) {
+      estimator.addMeasurement(100);
+    }
+    estimator.addMeasurement(1000);
+    estimator.addMeasurement(1000);
+    assertEquals(100, Math.exp(estimator.getLogAverage()), 1e-9);
+    estimator.addMeasurement(1000);
+    assertEquals(1000, Math.exp(estimator.getLogAverage()), 1e-9);
+  }
+
+  @Test
+  public void testHampelReplacesOutlierWithMedian() {
+    HampelEstimator estimator = new HampelEstimator(7, 3, 0.05);
+    for (int i = 0; i < 20; i++) {
+      estimator.addMeasurement(i % 2 == 0 ? 90 : 110);
+    }
+    double before = estimator.getLogAverage();
+    estimator.addMeasurement(1000000);
+    // The outlier counts as the median of the window, 90 or 110.
+    assertEquals(before, estimator.getLogAverage(), 0.02);
+
+    for (int i = 0; i < 100; i++) {
+      estimator.addMeasurement(i % 2 == 0 ? 900 : 1100);
+    }
+    assertEquals(1000, Math.exp(estimator.getLogAverage()), 50);
+  }
+
+  @Test
+  public void testKalmanSettlesQuickly() {
+    KalmanEstimator estimator = new KalmanEstimator(0.01, 0.25);
+    estimator.addMeasurement(100);
+    assertEquals(100, Math.exp(estimator.getLogAverage()), 1e-9);
+    for (int i = 0; i < 30; i++) {
+      estimator.addMeasurement(1000);
+    }
+    assertEquals(1000, Math.exp(estimator.getLogAverage()), 10);
+
+    estimator.restore(Math.log(500), 10);
+    assertEquals(10, estimator.getCount());
+    assertEquals(500, Math.exp(estimator.getLogAverage()), 1e-9);
+    estimator.reset();
+    assertTrue(Double.isNaN(estimator.getLogAverage()));
+  }
+
+  @Test
+  public void testManagerUsesEstimator() {
+    ConnectionClassManager manager = new ConnectionClassManager(
+        new BandTable(
+            new double[] {
+                ConnectionClassManager.DEFAULT_POOR_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_MODERATE_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_GOOD_BANDWIDTH},
+            ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT),
+        ConnectionClassManager.BANDWIDTH_QUALITIES,
+        WindowedMedianEstimator.factory(5));
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      // 400 kbps.
+      manager.addBandwidth(50, 1);
+    }
+    // A response served from a local cache.
+    manager.addBandwidth(100000000, 1);
+    assertEquals(400, manager.getDownloadKBitsPerSecond(), 1e-6);
+    assertEquals(ConnectionQuality.MODERATE, manager.getCurrentBandwidthQuality());
+  }
+}
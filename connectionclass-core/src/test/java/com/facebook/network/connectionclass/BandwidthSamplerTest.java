@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BandwidthSamplerTest {
+
+  private FakeByteCounterSource mByteCounterSource;
+  private FakeClock mClock;
+  private ConnectionClassManager mConnectionClassManager;
+  private BandwidthSampler mBandwidthSampler;
+
+  @Before
+  public void setUp() {
+    mByteCounterSource = new FakeByteCounterSource();
+    mClock = new FakeClock();
+    mConnectionClassManager = new ConnectionClassManager();
+    mBandwidthSampler =
+        new BandwidthSampler(mConnectionClassManager, mByteCounterSource, mClock);
+  }
+
+  @Test
+  public void testSamplesCounterDeltas() {
+    assertTrue(mBandwidthSampler.startSampling());
+    mBandwidthSampler.addSample();
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      // 500 kbps: 62500 bytes per second.
+      mByteCounterSource.mRxBytes += 62500;
+      mClock.mNow += 1000;
+      mBandwidthSampler.addSample();
+    }
+    assertEquals(500, mConnectionClassManager.getDownloadKBitsPerSecond(), 0.001);
+    assertEquals(ConnectionQuality.MODERATE, mConnectionClassManager.getCurrentBandwidthQuality());
+  }
+
+  @Test
+  public void testIgnoresBytesBetweenSessions() {
+    mBandwidthSampler.startSampling();
+    mBandwidthSampler.addSample();
+    mByteCounterSource.mRxBytes += 62500;
+    mClock.mNow += 1000;
+    assertTrue(mBandwidthSampler.stopSampling());
+    mBandwidthSampler.addFinalSample();
+
+    // Traffic while not sampling must not be attributed to the next session.
+    mByteCounterSource.mRxBytes += 100000000;
+    mClock.mNow += 1000;
+    mBandwidthSampler.startSampling();
+    mBandwidthSampler.addSample();
+    assertEquals(500, mConnectionClassManager.getDownloadKBitsPerSecond(), 0.001);
+  }
+
+  @Test
+  public void testSamplesUploadOnTheSameTick() {
+    mByteCounterSource.mTxBytes = 0;
+    mBandwidthSampler.startSampling();
+    mBandwidthSampler.addSample();
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      // 500 kbps down, 100 kbps up.
+      mByteCounterSource.mRxBytes += 62500;
+      mByteCounterSource.mTxBytes += 12500;
+      mClock.mNow += 1000;
+      assertEquals(75000, mBandwidthSampler.addSample());
+    }
+    assertEquals(500, mConnectionClassManager.getDownloadKBitsPerSecond(), 0.001);
+    assertEquals(100, mConnectionClassManager.getUploadKBitsPerSecond(), 0.001);
+    assertEquals(ConnectionQuality.MODERATE, mConnectionClassManager.getCurrentBandwidthQuality());
+    assertEquals(ConnectionQuality.POOR, mConnectionClassManager.getCurrentUploadQuality());
+  }
+
+  @Test
+  public void testNestedSessions() {
+    assertTrue(mBandwidthSampler.startSampling());
+    assertFalse(mBandwidthSampler.startSampling());
+    assertFalse(mBandwidthSampler.stopSampling());
+    assertTrue(mBandwidthSampler.isSampling());
+    assertTrue(mBandwidthSampler.stopSampling());
+    assertFalse(mBandwidthSampler.isSampling());
+  }
+
+  private static class FakeByteCounterSource implements ByteCounterSource {
+    long mRxBytes = 1000;
+    long mTxBytes = UNSUPPORTED;
+
+    @Override
+    public long getRxBytes() {
+      return mRxBytes;
+    }
+
+    @Override
+    public long getTxBytes() {
+      return mTxBytes;
+    }
+  }
+
+  private static class FakeClock implements Clock {
+    long mNow = 5000;
+
+    @Override
+    public long elapsedRealtime() {
+      return mNow;
+    }
+  }
+}
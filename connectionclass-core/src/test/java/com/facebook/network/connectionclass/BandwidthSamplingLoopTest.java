@@ -0,0 +1,162 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BandwidthSamplingLoopTest {
+
+  private ManualScheduler mScheduler;
+  private CountingByteCounterSource mByteCounterSource;
+  private BandwidthSamplingLoop mSamplingLoop;
+
+  @Before
+  public void setUp() {
+    mScheduler = new ManualScheduler();
+    mByteCounterSource = new CountingByteCounterSource();
+    mSamplingLoop = newLoop(mByteCounterSource);
+  }
+
+  @After
+  public void tearDown() {
+    mScheduler.shutdownNow();
+  }
+
+  @Test
+  public void testSchedulesNothingUntilStarted() {
+    assertTrue(mScheduler.mTasks.isEmpty());
+    mSamplingLoop.startSampling();
+    assertEquals(1, mScheduler.mTasks.size());
+    assertEquals(0, (long) mScheduler.mDelaysMs.get(0));
+  }
+
+  @Test
+  public void testEachPollSchedulesTheNext() {
+    mSamplingLoop.startSampling();
+    mScheduler.runNext();
+    mScheduler.runNext();
+    assertEquals(2, mByteCounterSource.mPolls);
+    assertEquals(
+        BandwidthSamplingLoop.DEFAULT_SAMPLE_INTERVAL_MS,
+        (long) mScheduler.mDelaysMs.get(2));
+
+    mSamplingLoop.stopSampling();
+    // The final sample.
+    assertEquals(3, mByteCounterSource.mPolls);
+    assertTrue(mScheduler.mFutures.get(2).isCancelled());
+    // A poll already on its way does nothing.
+    mScheduler.runNext();
+    assertEquals(3, mByteCounterSource.mPolls);
+  }
+
+  @Test
+  public void testFailedPollSchedulesTheNext() {
+    mSamplingLoop.startSampling();
+    mByteCounterSource.mFailNext = true;
+    try {
+      mScheduler.runNext();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(2, mScheduler.mTasks.size());
+    mScheduler.runNext();
+    assertEquals(2, mByteCounterSource.mPolls);
+  }
+
+  @Test
+  public void testLoopsShareAScheduler() {
+    CountingByteCounterSource otherSource = new CountingByteCounterSource();
+    BandwidthSamplingLoop otherLoop = newLoop(otherSource);
+    mSamplingLoop.startSampling();
+    otherLoop.startSampling();
+    mScheduler.runNext();
+    mScheduler.runNext();
+    assertEquals(1, mByteCounterSource.mPolls);
+    assertEquals(1, otherSource.mPolls);
+  }
+
+  private BandwidthSamplingLoop newLoop(ByteCounterSource source) {
+    BandwidthSamplingLoop loop = new BandwidthSamplingLoop(new BandwidthSampler(
+        new ConnectionClassManager(),
+        source,
+        new Clock() {
+          @Override
+          public long elapsedRealtime() {
+            return 0;
+          }
+        }));
+    loop.setScheduler(mScheduler);
+    return loop;
+  }
+
+  private static class CountingByteCounterSource implements ByteCounterSource {
+    int mPolls;
+    boolean mFailNext;
+
+    @Override
+    public long getRxBytes() {
+      mPolls++;
+      if (mFailNext) {
+        mFailNext = false;
+        throw new IllegalStateException();
+      }
+      return 0;
+    }
+
+    @Override
+    public long getTxBytes() {
+      return UNSUPPORTED;
+    }
+  }
+
+  /**
+   * Records scheduled tasks instead of running them; tests run them in order with runNext().
+   */
+  private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+    final List<Runnable> mTasks = new ArrayList<Runnable>();
+    final List<Long> mDelaysMs = new ArrayList<Long>();
+    final List<ScheduledFuture<?>> mFutures = new ArrayList<ScheduledFuture<?>>();
+    private int mNext;
+
+    ManualScheduler() {
+      super(1);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      mTasks.add(command);
+      mDelaysMs.add(unit.toMillis(delay));
+      ScheduledFuture<?> future = super.schedule(new Runnable() {
+        @Override
+        public void run() {
+        }
+      }, 1, TimeUnit.DAYS);
+      mFutures.add(future);
+      return future;
+    }
+
+    void runNext() {
+      mTasks.get(mNext++).run();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BandwidthTraceTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BandwidthTraceWriter writer = new BandwidthTraceWriter(out, NanoTimeClock.getInstance());
+    writer.append(1000, 125000, 1000);
+    writer.append(1250, 0, 250);
+    writer.append(1200, -5, 0);
+    writer.append(Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+    writer.close();
+
+    BandwidthTraceReader reader =
+        new BandwidthTraceReader(new ByteArrayInputStream(out.toByteArray()));
+    assertRecord(reader, 1000, 125000, 1000);
+    assertRecord(reader, 1250, 0, 250);
+    assertRecord(reader, 1200, -5, 0);
+    assertRecord(reader, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testConcurrentAppends() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final BandwidthTraceWriter writer =
+        new BandwidthTraceWriter(out, NanoTimeClock.getInstance());
+    final int threadCount = 4;
+    // More than the queue holds, so that appenders have to write records out too.
+    final int records = 5000;
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      final int thread = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < records; j++) {
+            writer.append(j, thread, j);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    writer.close();
+
+    BandwidthTraceReader reader =
+        new BandwidthTraceReader(new ByteArrayInputStream(out.toByteArray()));
+    long[] next = new long[threadCount];
+    while (reader.next()) {
+      int thread = (int) reader.getBytes();
+      assertEquals(next[thread]++, reader.getTimeInMs());
+    }
+    for (int i = 0; i < threadCount; i++) {
+      assertEquals(records, next[i]);
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncatedTrace() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BandwidthTraceWriter writer = new BandwidthTraceWriter(out, NanoTimeClock.getInstance());
+    writer.append(1000, 1 << 20, 1000);
+    writer.close();
+    byte[] trace = out.toByteArray();
+    BandwidthTraceReader reader = new BandwidthTraceReader(
+        new ByteArrayInputStream(Arrays.copyOf(trace, trace.length - 1)));
+    reader.next();
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsOtherData() throws IOException {
+    new BandwidthTraceReader(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+  }
+
+  @Test
+  public void testRecordAndReplay() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BandwidthTraceWriter writer = new BandwidthTraceWriter(out, new Clock() {
+      private long mTimeMs;
+
+      @Override
+      public long elapsedRealtime() {
+        return mTimeMs += 100;
+      }
+    });
+    ConnectionClassManager recorded = new ConnectionClassManager();
+    recorded.setTraceWriter(writer);
+    for (int i = 0; i < 20; i++) {
+      recorded.addBandwidth(1000, 2);
+    }
+    recorded.addBandwidth(0, 2);
+    for (int i = 0; i < 40; i++) {
+      recorded.addBandwidth(10, 2);
+    }
+    writer.close();
+
+    ConnectionClassManager replayed = new ConnectionClassManager();
+    QualityTimeline timeline =
+        BandwidthTraceReplayer.replay(new ByteArrayInputStream(out.toByteArray()), replayed);
+    assertEquals(61, timeline.getSampleCount());
+    assertTrue(timeline.getChangeCount() >= 2);
+    assertEquals(ConnectionQuality.EXCELLENT, timeline.getQuality(0));
+    assertEquals(5, timeline.getSampleIndex(0));
+    assertEquals(600, timeline.getTimestampMs(0));
+    assertEquals(ConnectionQuality.POOR, timeline.getQuality(timeline.getChangeCount() - 1));
+    assertEquals(recorded.getDownloadKBitsPerSecond(), replayed.getDownloadKBitsPerSecond(), 0);
+  }
+
+  @Test
+  public void testReplayRestoresListenerExecutor() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BandwidthTraceWriter(out, NanoTimeClock.getInstance()).close();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setListenerExecutor(executor);
+    BandwidthTraceReplayer.replay(new ByteArrayInputStream(out.toByteArray()), manager);
+    assertSame(executor, manager.getListenerExecutor());
+  }
+
+  private static void assertRecord(
+      BandwidthTraceReader reader, long timestampMs, long bytes, long timeInMs)
+      throws IOException {
+    assertTrue(reader.next());
+    assertEquals(timestampMs, reader.getTimestampMs());
+    assertEquals(bytes, reader.getBytes());
+    assertEquals(timeInMs, reader.getTimeInMs());
+  }
+}
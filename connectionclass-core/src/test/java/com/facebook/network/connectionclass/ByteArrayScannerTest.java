@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ByteArrayScannerTest {
+
+  private ByteArrayScanner mScanner;
+
+  @Before
+  public void setUp() {
+    mScanner = new ByteArrayScanner();
+  }
+
+  @Test
+  public void testFindsDelimiterAtEveryPosition() {
+    // Covers matches at the start, middle and end of inputs of varying length.
+    for (int length = 1; length < 40; length++) {
+      for (int position = 0; position < length; position++) {
+        byte[] data = new byte[length + 3];
+        for (int i = 0; i < data.length; i++) {
+          data[i] = (byte) ('a' + i % 26);
+        }
+        data[position] = ' ';
+        mScanner.reset(data, length).useDelimiter(' ');
+        assertEquals(position, mScanner.nextString().length());
+        assertEquals(position < length - 1, mScanner.hasNext());
+      }
+    }
+  }
+
+  @Test
+  public void testNextLong() {
+    String input = "0 9223372036854775807 -9223372036854775808 +42 -17 4294967296";
+    mScanner.reset(input.getBytes(), input.length()).useDelimiter(' ');
+    assertEquals(0L, mScanner.nextLong());
+    assertEquals(Long.MAX_VALUE, mScanner.nextLong());
+    assertEquals(Long.MIN_VALUE, mScanner.nextLong());
+    assertEquals(42L, mScanner.nextLong());
+    assertEquals(-17L, mScanner.nextLong());
+    assertEquals(4294967296L, mScanner.nextLong());
+    assertFalse(mScanner.hasNext());
+  }
+
+  @Test
+  public void testNextLongRejectsOverflowAndGarbage() {
+    String[] inputs = {"9223372036854775808", "-9223372036854775809", "-", "12a", ""};
+    for (String input : inputs) {
+      mScanner.reset((input + " 1").getBytes(), input.length() + 2).useDelimiter(' ');
+      try {
+        mScanner.nextLong();
+        fail("Expected NumberFormatException for '" + input + "'");
+      } catch (NumberFormatException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void testNextIntRejectsOverflow() {
+    String input = "-2147483648 2147483648";
+    mScanner.reset(input.getBytes(), input.length()).useDelimiter(' ');
+    assertEquals(Integer.MIN_VALUE, mScanner.nextInt());
+    try {
+      mScanner.nextInt();
+      fail("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testNextToken() {
+    String input = "wlan0 1839216487";
+    mScanner.reset(input.getBytes(), input.length()).useDelimiter(' ');
+    ByteArrayScanner.Token token = new ByteArrayScanner.Token();
+    assertTrue(mScanner.nextToken(token).contentEquals("wlan0"));
+    assertEquals("wlan0", token.toString());
+    assertEquals("lan", token.subSequence(1, 4).toString());
+    assertEquals(1839216487L, mScanner.nextToken(token).parseLong());
+    assertEquals('7', token.charAt(9));
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testReadingPastEnd() {
+    mScanner.reset("a".getBytes(), 1).useDelimiter(' ');
+    mScanner.skip();
+    mScanner.skip();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangePointDetectorTest {
+
+  @Test
+  public void testIgnoresNoise() {
+    ChangePointDetector detector = new ChangePointDetector();
+    Random random = new Random(3);
+    for (int i = 0; i < 10000; i++) {
+      // Samples within a factor of 1.5 either way of the estimate.
+      double logSample = Math.log(1000) + (random.nextDouble() * 2 - 1) * Math.log(1.5);
+      assertFalse(detector.addLogSample(logSample, Math.log(1000)));
+    }
+  }
+
+  @Test
+  public void testDetectsDropOnSecondSample() {
+    ChangePointDetector detector = new ChangePointDetector();
+    assertFalse(detector.addLogSample(Math.log(300), Math.log(3000)));
+    assertTrue(detector.addLogSample(Math.log(300), Math.log(3000)));
+    assertEquals(Math.log(300), detector.getChangeLogLevel(), 1e-9);
+    assertEquals(2, detector.getChangeSampleCount());
+  }
+
+  @Test
+  public void testIgnoresSingleOutlier() {
+    ChangePointDetector detector = new ChangePointDetector();
+    assertFalse(detector.addLogSample(Math.log(20), Math.log(1000)));
+    for (int i = 0; i < 10; i++) {
+      assertFalse(detector.addLogSample(Math.log(1000), Math.log(1000)));
+    }
+  }
+
+  @Test
+  public void testManagerIgnoresSingleOutlier() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setChangePointDetection(true);
+    for (int i = 0; i < 20; i++) {
+      // 1000 kbps.
+      manager.addBandwidth(125, 1);
+    }
+    assertEquals(ConnectionQuality.GOOD, manager.getCurrentBandwidthQuality());
+
+    // One 20 kbps read.
+    manager.addBandwidth(5, 2);
+    assertEquals(ConnectionQuality.GOOD, manager.getCurrentBandwidthQuality());
+    for (int i = 0; i < 20; i++) {
+      manager.addBandwidth(125, 1);
+      assertEquals(ConnectionQuality.GOOD, manager.getCurrentBandwidthQuality());
+    }
+  }
+
+  @Test
+  public void testManagerCommitsDetectedChange() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setChangePointDetection(true);
+    for (int i = 0; i < 20; i++) {
+      // 3000 kbps.
+      manager.addBandwidth(375, 1);
+    }
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+
+    // 300 kbps.
+    manager.addBandwidth(75, 2);
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+    manager.addBandwidth(75, 2);
+    assertEquals(ConnectionQuality.MODERATE, manager.getCurrentBandwidthQuality());
+    assertEquals(300, manager.getDownloadKBitsPerSecond(), 1e-6);
+    assertFalse(manager.isBandwidthChangePending());
+  }
+
+  @Test
+  public void testSimulatedStepConvergesFaster() {
+    LinkCapacityTrace trace = LinkCapacityTrace.step(3000, 300, 30000);
+    ConnectionClassManager detecting = new ConnectionClassManager();
+    detecting.setChangePointDetection(true);
+    SimulationResult withDetection = new NetworkSimulator(detecting, trace).run(120000);
+    SimulationResult without =
+        new NetworkSimulator(new ConnectionClassManager(), trace).run(120000);
+    assertEquals(0, withDetection.getFlaps());
+    assertTrue(withDetection.getMaxConvergenceMs() < without.getMaxConvergenceMs());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConflatingPublisherTest {
+
+  @Test
+  public void testDeliversOnlyWhatWasRequested() {
+    ConflatingPublisher<Integer> publisher = new ConflatingPublisher<Integer>();
+    assertFalse(publisher.hasSubscribers());
+    RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>();
+    publisher.subscribe(subscriber);
+    assertTrue(publisher.hasSubscribers());
+
+    publisher.publish(1);
+    assertTrue(subscriber.mItems.isEmpty());
+    subscriber.mSubscription.request(1);
+    assertEquals(1, subscriber.mItems.size());
+    assertEquals(Integer.valueOf(1), subscriber.mItems.get(0));
+
+    // Without demand, only the latest value is kept.
+    publisher.publish(2);
+    publisher.publish(3);
+    subscriber.mSubscription.request(5);
+    assertEquals(2, subscriber.mItems.size());
+    assertEquals(Integer.valueOf(3), subscriber.mItems.get(1));
+
+    publisher.publish(4);
+    assertEquals(3, subscriber.mItems.size());
+  }
+
+  @Test
+  public void testNewSubscriberGetsLatest() {
+    ConflatingPublisher<Integer> publisher = new ConflatingPublisher<Integer>();
+    publisher.publish(7);
+    RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>();
+    publisher.subscribe(subscriber);
+    subscriber.mSubscription.request(Long.MAX_VALUE);
+    assertEquals(1, subscriber.mItems.size());
+    assertEquals(Integer.valueOf(7), subscriber.mItems.get(0));
+  }
+
+  @Test
+  public void testCancelAndInvalidRequest() {
+    ConflatingPublisher<Integer> publisher = new ConflatingPublisher<Integer>();
+    RecordingSubscriber<Integer> cancelled = new RecordingSubscriber<Integer>();
+    RecordingSubscriber<Integer> invalid = new RecordingSubscriber<Integer>();
+    publisher.subscribe(cancelled);
+    publisher.subscribe(invalid);
+
+    cancelled.mSubscription.request(1);
+    cancelled.mSubscription.cancel();
+    invalid.mSubscription.request(0);
+    assertTrue(invalid.mError instanceof IllegalArgumentException);
+    assertFalse(publisher.hasSubscribers());
+
+    publisher.publish(1);
+    assertTrue(cancelled.mItems.isEmpty());
+    assertTrue(invalid.mItems.isEmpty());
+  }
+
+  @Test
+  public void testThrowingSubscriberIsCancelled() {
+    ConflatingPublisher<Integer> publisher = new ConflatingPublisher<Integer>();
+    RecordingSubscriber<Integer> throwing = new RecordingSubscriber<Integer>() {
+      @Override
+      public void onNext(Integer item) {
+        throw new IllegalStateException();
+      }
+    };
+    RecordingSubscriber<Integer> other = new RecordingSubscriber<Integer>();
+    publisher.subscribe(throwing);
+    publisher.subscribe(other);
+    throwing.mSubscription.request(Long.MAX_VALUE);
+    other.mSubscription.request(Long.MAX_VALUE);
+
+    publisher.publish(1);
+    assertTrue(throwing.mError instanceof IllegalStateException);
+    assertEquals(1, other.mItems.size());
+    publisher.publish(2);
+    assertEquals(2, other.mItems.size());
+  }
+
+  @Test
+  public void testManagerResetClearsLatest() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setBandwidthPublishInterval(0);
+    RecordingSubscriber<Double> pending = new RecordingSubscriber<Double>();
+    manager.getBandwidthPublisher().subscribe(pending);
+    manager.addBandwidth(1000, 2);
+    manager.reset();
+
+    RecordingSubscriber<Double> late = new RecordingSubscriber<Double>();
+    manager.getBandwidthPublisher().subscribe(late);
+    pending.mSubscription.request(1);
+    late.mSubscription.request(1);
+    assertTrue(pending.mItems.isEmpty());
+    assertTrue(late.mItems.isEmpty());
+  }
+
+  @Test
+  public void testManagerPublishesChangesAndReadings() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setBandwidthPublishInterval(0);
+    RecordingSubscriber<ConnectionClassChangeEvent> changes =
+        new RecordingSubscriber<ConnectionClassChangeEvent>();
+    RecordingSubscriber<Double> readings = new RecordingSubscriber<Double>();
+    manager.getChangePublisher().subscribe(changes);
+    manager.getBandwidthPublisher().subscribe(readings);
+    changes.mSubscription.request(Long.MAX_VALUE);
+    readings.mSubscription.request(3);
+
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      manager.addBandwidth(1000, 2);
+    }
+    assertEquals(1, changes.mItems.size());
+    assertEquals(ConnectionQuality.EXCELLENT, changes.mItems.get(0).getQuality());
+    assertEquals(3, readings.mItems.size());
+    assertEquals(4000, readings.mItems.get(2), 1e-6);
+  }
+
+  private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+    final List<T> mItems = new ArrayList<T>();
+    Flow.Subscription mSubscription;
+    Throwable mError;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      mSubscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      mItems.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      mError = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      throw new AssertionError("State never completes.");
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ConnectionClassManagerRegistryTest {
+
+  private ConnectionClassManagerRegistry<String> mRegistry;
+
+  @Before
+  public void setUp() {
+    mRegistry = new ConnectionClassManagerRegistry<String>(2);
+  }
+
+  @Test
+  public void testKeysAreIndependent() {
+    ConnectionClassManager cdn = mRegistry.get("cdn.example.com");
+    ConnectionClassManager api = mRegistry.get("api.example.com");
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      cdn.addBandwidth(10, 2);
+      api.addBandwidth(1000, 2);
+    }
+    assertEquals(ConnectionQuality.POOR, cdn.getCurrentBandwidthQuality());
+    assertEquals(ConnectionQuality.EXCELLENT, api.getCurrentBandwidthQuality());
+    assertSame(cdn, mRegistry.get("cdn.example.com"));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    ConnectionClassManager first = mRegistry.get("first");
+    ConnectionClassManager second = mRegistry.get("second");
+    mRegistry.get("first");
+    mRegistry.get("third");
+    assertEquals(2, mRegistry.size());
+    assertSame(first, mRegistry.get("first"));
+    assertNotSame(second, mRegistry.get("second"));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionClassStateStoreTest {
+
+  private static final long MAX_AGE_MS = 60 * 60 * 1000;
+
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  @Test
+  public void testRestoreAfterReopen() throws IOException {
+    File file = mFolder.newFile();
+    ConnectionClassManager manager = excellentManager();
+    ConnectionClassStateStore store = new ConnectionClassStateStore(file);
+    store.save("wifi:home", manager);
+    store.close();
+
+    ConnectionClassManager restored = new ConnectionClassManager();
+    store = new ConnectionClassStateStore(file);
+    assertTrue(store.restore("wifi:home", restored, MAX_AGE_MS));
+    assertFalse(store.restore("wifi:work", restored, MAX_AGE_MS));
+    store.close();
+
+    assertEquals(ConnectionQuality.EXCELLENT, restored.getCurrentBandwidthQuality());
+    assertEquals(
+        manager.getDownloadKBitsPerSecond(), restored.getDownloadKBitsPerSecond(), 0.001);
+  }
+
+  @Test
+  public void testRestoreNotifiesListeners() throws IOException {
+    final ConnectionQuality[] lastQuality = new ConnectionQuality[1];
+    ConnectionClassStateStore store = new ConnectionClassStateStore(mFolder.newFile());
+    store.save("lte", excellentManager());
+    ConnectionClassManager restored = new ConnectionClassManager();
+    restored.register(new ConnectionClassManager.ConnectionClassStateChangeListener() {
+      @Override
+      public void onBandwidthStateChange(ConnectionQuality bandwidthState) {
+        lastQuality[0] = bandwidthState;
+      }
+    });
+    assertTrue(store.restore("lte", restored, MAX_AGE_MS));
+    assertEquals(ConnectionQuality.EXCELLENT, lastQuality[0]);
+    store.close();
+  }
+
+  @Test
+  public void testIgnoresStaleState() throws IOException {
+    ConnectionClassStateStore store = new ConnectionClassStateStore(mFolder.newFile());
+    store.save("lte", excellentManager());
+    assertFalse(store.restore("lte", new ConnectionClassManager(), -1));
+    store.close();
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws IOException {
+    ConnectionClassStateStore store = new ConnectionClassStateStore(mFolder.newFile(), 2);
+    ConnectionClassManager manager = excellentManager();
+    store.save("a", manager);
+    store.save("b", manager);
+    assertTrue(store.restore("a", new ConnectionClassManager(), MAX_AGE_MS));
+    store.save("c", manager);
+    assertTrue(store.restore("a", new ConnectionClassManager(), MAX_AGE_MS));
+    assertFalse(store.restore("b", new ConnectionClassManager(), MAX_AGE_MS));
+    assertTrue(store.restore("c", new ConnectionClassManager(), MAX_AGE_MS));
+    store.close();
+  }
+
+  @Test
+  public void testIgnoresCorruptState() throws IOException {
+    File file = mFolder.newFile();
+    ConnectionClassStateStore store = new ConnectionClassStateStore(file, 1);
+    store.save("lte", excellentManager());
+    store.close();
+
+    // Flip a bit of the saved state, at the end of the only slot.
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(raf.length() - 1);
+      int last = raf.read();
+      raf.seek(raf.length() - 1);
+      raf.write(last ^ 1);
+    } finally {
+      raf.close();
+    }
+
+    store = new ConnectionClassStateStore(file, 1);
+    assertFalse(store.restore("lte", new ConnectionClassManager(), MAX_AGE_MS));
+    store.close();
+  }
+
+  @Test
+  public void testEmptyManagerIsNotRestored() throws IOException {
+    ConnectionClassStateStore store = new ConnectionClassStateStore(mFolder.newFile());
+    store.save("lte", new ConnectionClassManager());
+    assertFalse(store.restore("lte", new ConnectionClassManager(), MAX_AGE_MS));
+    store.close();
+  }
+
+  private static ConnectionClassManager excellentManager() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(1000, 2);
+    }
+    return manager;
+  }
+}
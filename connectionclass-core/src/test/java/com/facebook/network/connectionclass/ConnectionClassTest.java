@@ -0,0 +1,372 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionClassTest {
+
+  public ConnectionClassManager mConnectionClassManager;
+  public TestBandwidthStateChangeListener mTestBandwidthStateChangeListener;
+
+  private static final long BYTES_TO_BITS = 8;
+
+  @Before
+  public void setUp() {
+    mConnectionClassManager = ConnectionClassManager.getInstance();
+    mTestBandwidthStateChangeListener = new TestBandwidthStateChangeListener();
+    mConnectionClassManager.reset();
+  }
+
+  //Test the moving average to make sure correct results are returned.
+  @Test
+  public void TestMovingAverage() {
+    mConnectionClassManager.addBandwidth(620000L, 1000L);
+    mConnectionClassManager.addBandwidth(630000L, 1000L);
+    mConnectionClassManager.addBandwidth(670000L, 1000L);
+    mConnectionClassManager.addBandwidth(500000L, 1000L);
+    mConnectionClassManager.addBandwidth(550000L, 1000L);
+    mConnectionClassManager.addBandwidth(590000L, 1000L);
+    assertEquals(ConnectionQuality.EXCELLENT, mConnectionClassManager.getCurrentBandwidthQuality());
+  }
+
+  //Test that values under the lower bandwidth bound do not affect the final ConnectionClass values.
+  @Test
+  public void TestGarbageValues() {
+    mConnectionClassManager.addBandwidth(620000L, 1000L);
+    mConnectionClassManager.addBandwidth(0L, 1000L);
+    mConnectionClassManager.addBandwidth(630000L, 1000L);
+    mConnectionClassManager.addBandwidth(5L, 1000L);
+    mConnectionClassManager.addBandwidth(10L, 1000L);
+    mConnectionClassManager.addBandwidth(0L, 1000L);
+    mConnectionClassManager.addBandwidth(90L, 1000L);
+    mConnectionClassManager.addBandwidth(200L, 1000L);
+    mConnectionClassManager.addBandwidth(670000L, 1000L);
+    mConnectionClassManager.addBandwidth(500000L, 1000L);
+    mConnectionClassManager.addBandwidth(550000L, 1000L);
+    mConnectionClassManager.addBandwidth(590000L, 1000L);
+    assertEquals(ConnectionQuality.EXCELLENT, mConnectionClassManager.getCurrentBandwidthQuality());
+  }
+
+  @Test
+  public void testStateChangeBroadcastNoBroadcast() {
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE - 1; i++) {
+      mConnectionClassManager.addBandwidth(1000, 2);
+    }
+    assertEquals(0, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+  }
+
+  @Test
+  public void testStateChangeBroadcastWithBroadcast() {
+    mConnectionClassManager.reset();
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      mConnectionClassManager.addBandwidth(1000, 2);
+    }
+    assertEquals(1, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+    assertEquals(ConnectionQuality.EXCELLENT, mTestBandwidthStateChangeListener.getLastBandwidthState());
+  }
+
+  @Test
+  public void testStateChangeBroadcastDoesNotRepeatItself() {
+    mConnectionClassManager.reset();
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      mConnectionClassManager.addBandwidth(1000, 2);
+    }
+    assertEquals(1, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+  }
+
+  @Test
+  public void testStateChangeHysteresisRejectsLow() {
+    runHysteresisTest(
+            ConnectionClassManager.DEFAULT_POOR_BANDWIDTH,
+            1.02,
+            ConnectionQuality.MODERATE,
+            (100.0 - ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT / 2) / 100.0,
+            ConnectionQuality.MODERATE);
+  }
+
+  @Test
+  public void testStateChangeHysteresisRejectsHigh() {
+    runHysteresisTest(
+            ConnectionClassManager.DEFAULT_MODERATE_BANDWIDTH,
+            .98,
+            ConnectionQuality.MODERATE,
+            100.0 / (100.0 - ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT / 2),
+            ConnectionQuality.MODERATE);
+  }
+
+  @Test
+  public void testStateChangeHysteresisAcceptsLow() {
+    runHysteresisTest(
+            ConnectionClassManager.DEFAULT_POOR_BANDWIDTH,
+            1.02,
+            ConnectionQuality.MODERATE,
+            (100.0 - ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT * 2) / 100.0,
+            ConnectionQuality.POOR);
+  }
+
+  @Test
+  public void testStateChangeHysteresisAcceptsHigh() {
+    runHysteresisTest(
+            ConnectionClassManager.DEFAULT_MODERATE_BANDWIDTH,
+            0.98,
+            ConnectionQuality.MODERATE,
+            100.0 / (100.0 - ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT * 2),
+            ConnectionQuality.GOOD);
+  }
+
+  @Test
+  public void testBatchBroadcastsOnce() {
+    int poorCount = 2 * (int) ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE;
+    int count = 12 * (int) ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE;
+    long[] bytes = new long[count + 2];
+    long[] timesMs = new long[count + 2];
+    for (int i = 0; i < count; i++) {
+      // Starts poor and ends excellent, crossing several bands within the batch.
+      bytes[i + 1] = i < poorCount ? 10 : 1000;
+      timesMs[i + 1] = 2;
+    }
+    mConnectionClassManager.addBandwidthBatch(bytes, timesMs, 1, count);
+    assertEquals(1, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+    assertEquals(ConnectionQuality.EXCELLENT, mTestBandwidthStateChangeListener.getLastBandwidthState());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchRejectsOverflowingRange() {
+    mConnectionClassManager.addBandwidthBatch(new long[2], new long[2], 1, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testConcurrentSamplesBroadcastOnce() throws InterruptedException {
+    Thread[] producers = new Thread[8];
+    for (int i = 0; i < producers.length; i++) {
+      producers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            mConnectionClassManager.addBandwidth(1000, 2);
+          }
+        }
+      });
+      producers[i].start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    assertEquals(1, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+    assertEquals(ConnectionQuality.EXCELLENT, mConnectionClassManager.getCurrentBandwidthQuality());
+    assertEquals(4000, mConnectionClassManager.getDownloadKBitsPerSecond(), 0.001);
+  }
+
+  // A sample published while reset() holds the drain flag is applied after the reset.
+  @Test
+  public void testSampleDuringResetIsApplied() {
+    final ConnectionClassManager manager = new ConnectionClassManager();
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(1000, 2);
+    }
+    manager.setMetricsSink(new CountingMetricsSink() {
+      @Override
+      public void onQualityChanged(ConnectionQuality previousQuality, ConnectionQuality quality) {
+        super.onQualityChanged(previousQuality, quality);
+        // 1000 kbps.
+        manager.addBandwidth(125, 1);
+      }
+    });
+    manager.reset();
+    assertEquals(1000, manager.getDownloadKBitsPerSecond(), 0.001);
+  }
+
+  // Changes that happen before the executor runs the listeners are delivered as one event.
+  @Test
+  public void testChangeEventsAreCoalescedOnExecutor() {
+    final List<Runnable> tasks = new ArrayList<Runnable>();
+    final List<ConnectionClassChangeEvent> events = new ArrayList<ConnectionClassChangeEvent>();
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setListenerExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    });
+    manager.registerChangeListener(new ConnectionClassManager.ConnectionClassChangeListener() {
+      @Override
+      public void onConnectionClassChange(ConnectionClassChangeEvent event) {
+        events.add(event);
+      }
+    });
+
+    for (int i = 0; i < 2 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(10, 2);
+    }
+    assertEquals(ConnectionQuality.POOR, manager.getCurrentBandwidthQuality());
+    for (int i = 0; i < 20 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(1000, 2);
+    }
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+    assertEquals(0, events.size());
+
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    assertEquals(1, events.size());
+    ConnectionClassChangeEvent event = events.get(0);
+    assertEquals(ConnectionQuality.UNKNOWN, event.getPreviousQuality());
+    assertEquals(ConnectionQuality.EXCELLENT, event.getQuality());
+    assertTrue(event.getDownloadKBitsPerSecond() > ConnectionClassManager.DEFAULT_GOOD_BANDWIDTH);
+  }
+
+  // Changes that end where the listeners last saw the class are not delivered at all.
+  @Test
+  public void testRoundTripIsDroppedOnExecutor() {
+    final List<Runnable> tasks = new ArrayList<Runnable>();
+    final List<ConnectionClassChangeEvent> events = new ArrayList<ConnectionClassChangeEvent>();
+    ConnectionClassManager manager = new ConnectionClassManager();
+    manager.setListenerExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    });
+    manager.registerChangeListener(new ConnectionClassManager.ConnectionClassChangeListener() {
+      @Override
+      public void onConnectionClassChange(ConnectionClassChangeEvent event) {
+        events.add(event);
+      }
+    });
+
+    for (int i = 0; i < 2 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(10, 2);
+    }
+    assertEquals(ConnectionQuality.POOR, manager.getCurrentBandwidthQuality());
+    tasks.remove(0).run();
+    assertEquals(1, events.size());
+
+    while (manager.getCurrentBandwidthQuality() != ConnectionQuality.EXCELLENT
+        || manager.isBandwidthChangePending()) {
+      manager.addBandwidth(1000, 2);
+    }
+    while (manager.getCurrentBandwidthQuality() != ConnectionQuality.POOR
+        || manager.isBandwidthChangePending()) {
+      manager.addBandwidth(10, 2);
+    }
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals(1, events.size());
+  }
+
+  // A listener may register and remove listeners while being notified.
+  @Test
+  public void testListenerRemovesItself() {
+    final int[] calls = new int[1];
+    mConnectionClassManager.register(new ConnectionClassManager.ConnectionClassStateChangeListener() {
+      @Override
+      public void onBandwidthStateChange(ConnectionQuality bandwidthState) {
+        calls[0]++;
+        mConnectionClassManager.remove(this);
+      }
+    });
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      mConnectionClassManager.addBandwidth(1000, 2);
+    }
+    assertEquals(1, calls[0]);
+    assertEquals(1, mTestBandwidthStateChangeListener.getNumberOfStateChanges());
+  }
+
+  @Test
+  public void testUploadIsTrackedSeparately() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    final List<ConnectionQuality> uploadChanges = new ArrayList<ConnectionQuality>();
+    assertEquals(ConnectionQuality.UNKNOWN, manager.registerUpload(
+        new ConnectionClassManager.ConnectionClassStateChangeListener() {
+          @Override
+          public void onBandwidthStateChange(ConnectionQuality bandwidthState) {
+            uploadChanges.add(bandwidthState);
+          }
+        }));
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      manager.addBandwidth(1000, 2);
+      manager.addUploadBandwidth(100, 8);
+    }
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+    assertEquals(ConnectionQuality.POOR, manager.getCurrentUploadQuality());
+    assertEquals(100, manager.getUploadKBitsPerSecond(), 0.001);
+    assertEquals(1, uploadChanges.size());
+    assertEquals(ConnectionQuality.POOR, uploadChanges.get(0));
+
+    manager.reset();
+    assertEquals(-1, manager.getUploadKBitsPerSecond(), 0);
+  }
+
+  private void runHysteresisTest(
+          double bandwidthBoundary,
+          double initialMultiplier,
+          ConnectionQuality initialQuality,
+          double finalMultiplier,
+          ConnectionQuality finalQuality) {
+    int milliseconds = 5;
+
+    // Run just enough samples to set the initial quality.
+    for (int i = 0; i < ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE + 1; i++) {
+      long barelyModerateBytes = bytesPerUpdate(bandwidthBoundary, initialMultiplier, milliseconds);
+        mConnectionClassManager.addBandwidth(barelyModerateBytes, milliseconds);
+    }
+    assertEquals(initialQuality, mTestBandwidthStateChangeListener.getLastBandwidthState());
+
+    // Run enough samples at the new rate that the moving average should now be close to this rate.
+    for (int i = 0; i < 2 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      long quitePoorBytes = bytesPerUpdate(bandwidthBoundary, finalMultiplier, milliseconds);;
+        mConnectionClassManager.addBandwidth(quitePoorBytes, milliseconds);
+    }
+    assertEquals(finalQuality, mTestBandwidthStateChangeListener.getLastBandwidthState());
+  }
+
+  static private long bytesPerUpdate(
+          double bandwidthBoundary,
+          double multiplier,
+          long milliseconds) {
+    double bytes = bandwidthBoundary * multiplier * milliseconds / BYTES_TO_BITS;
+    bytes = multiplier > 1.0 ? Math.ceil(bytes) : Math.floor(bytes);
+    return (long) bytes;
+  }
+
+  private class TestBandwidthStateChangeListener implements
+      ConnectionClassManager.ConnectionClassStateChangeListener {
+
+    private int mNumberOfStateChanges = 0;
+    private ConnectionQuality mLastBandwidthState;
+
+    private TestBandwidthStateChangeListener() {
+      mConnectionClassManager.register(this);
+    }
+
+    @Override
+    public void onBandwidthStateChange(ConnectionQuality bandwidthState) {
+      mNumberOfStateChanges += 1;
+      mLastBandwidthState = bandwidthState;
+    }
+
+    public int getNumberOfStateChanges() {
+      return mNumberOfStateChanges;
+    }
+
+    public ConnectionQuality getLastBandwidthState() {
+      return mLastBandwidthState;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CountingMetricsSinkTest {
+
+  private ConnectionClassManager mManager;
+  private CountingMetricsSink mSink;
+
+  @Before
+  public void setUp() {
+    mManager = new ConnectionClassManager();
+    mSink = new CountingMetricsSink();
+    mManager.setMetricsSink(mSink);
+  }
+
+  @Test
+  public void testCountsSamples() {
+    mManager.addBandwidth(1000, 2);
+    mManager.addBandwidth(0, 2);
+    mManager.addBandwidth(1000, 0);
+    mManager.addBandwidthBatch(new long[] {1000, 1}, new long[] {2, 2}, 0, 2);
+    assertEquals(2, mSink.getSamplesAccepted());
+    assertEquals(3, mSink.getSamplesDropped());
+  }
+
+  @Test
+  public void testCountsTransitions() {
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      mManager.addBandwidth(1000, 2);
+    }
+    assertEquals(1, mSink.getTransitionsStarted());
+    assertEquals(1, mSink.getTransitionsCommitted());
+    assertEquals(1, mSink.getListenerDispatches());
+
+    // A short dip to good starts a transition, which a burst cuts short.
+    for (int i = 0; i < 3; i++) {
+      mManager.addBandwidth(50, 2);
+    }
+    assertTrue(mManager.isBandwidthChangePending());
+    mManager.addBandwidth(100000, 2);
+    for (int i = 0; i < 100; i++) {
+      mManager.addBandwidth(1000, 2);
+    }
+    assertFalse(mManager.isBandwidthChangePending());
+    assertEquals(2, mSink.getTransitionsStarted());
+    assertEquals(1, mSink.getTransitionsAborted());
+    assertEquals(1, mSink.getTransitionsCommitted());
+    assertEquals(ConnectionQuality.EXCELLENT, mManager.getCurrentBandwidthQuality());
+  }
+
+  @Test
+  public void testTracksTimeInQuality() throws InterruptedException {
+    Thread.sleep(20);
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      mManager.addBandwidth(1000, 2);
+    }
+    Thread.sleep(20);
+    assertTrue(mSink.getTimeInQualityMs(ConnectionQuality.UNKNOWN) >= 20);
+    assertEquals(0, mSink.getTimeInQualityMs(ConnectionQuality.EXCELLENT));
+    assertTrue(mSink.getTimeSinceQualityChangeMs() >= 20);
+    assertEquals(0, mSink.getTimeInQualityMs(ConnectionQuality.POOR));
+  }
+
+  // The time before the first change goes to the quality it left, not to UNKNOWN.
+  @Test
+  public void testTracksTimeInQualityWhenAttachedLate() throws InterruptedException {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    for (int i = 0; i < 3 * ConnectionClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      manager.addBandwidth(1000, 2);
+    }
+    assertEquals(ConnectionQuality.EXCELLENT, manager.getCurrentBandwidthQuality());
+    CountingMetricsSink sink = new CountingMetricsSink();
+    manager.setMetricsSink(sink);
+    Thread.sleep(20);
+    manager.reset();
+    assertTrue(sink.getTimeInQualityMs(ConnectionQuality.EXCELLENT) >= 20);
+    assertEquals(0, sink.getTimeInQualityMs(ConnectionQuality.UNKNOWN));
+  }
+
+  @Test
+  public void testCountsChangePointJumpAsTransition() {
+    mManager.setChangePointDetection(true);
+    for (int i = 0; i < 20; i++) {
+      // 3000 kbps.
+      mManager.addBandwidth(375, 1);
+    }
+    // 300 kbps, detected before the average leaves EXCELLENT.
+    mManager.addBandwidth(75, 2);
+    mManager.addBandwidth(75, 2);
+    assertEquals(ConnectionQuality.MODERATE, mManager.getCurrentBandwidthQuality());
+    assertFalse(mManager.isBandwidthChangePending());
+    assertEquals(mSink.getTransitionsStarted(),
+        mSink.getTransitionsAborted() + mSink.getTransitionsCommitted());
+  }
+
+  @Test
+  public void testCountsPolls() {
+    BandwidthSampler sampler = new BandwidthSampler(
+        mManager,
+        new ByteCounterSource() {
+          private long mBytes;
+
+          @Override
+          public long getRxBytes() {
+            return mBytes += 1000;
+          }
+
+          @Override
+          public long getTxBytes() {
+            return UNSUPPORTED;
+          }
+        },
+        new Clock() {
+          private long mTimeMs;
+
+          @Override
+          public long elapsedRealtime() {
+            return mTimeMs += 2;
+          }
+        });
+    sampler.setMetricsSink(mSink);
+    sampler.startSampling();
+    sampler.addSample();
+    sampler.addSample();
+    sampler.addSample();
+    assertEquals(3, mSink.getPolls());
+    assertTrue(mSink.getPollLatencyNs() > 0);
+    assertEquals(2, mSink.getSamplesAccepted());
+  }
+}
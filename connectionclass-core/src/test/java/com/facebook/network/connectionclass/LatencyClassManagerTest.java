@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyClassManagerTest {
+
+  private LatencyClassManager mLatencyClassManager;
+  private final List<LatencyQuality> mStateChanges = new ArrayList<LatencyQuality>();
+
+  @Before
+  public void setUp() {
+    mLatencyClassManager = new LatencyClassManager();
+    mLatencyClassManager.register(new LatencyClassManager.LatencyClassStateChangeListener() {
+      @Override
+      public void onLatencyStateChange(LatencyQuality latencyState) {
+        mStateChanges.add(latencyState);
+      }
+    });
+  }
+
+  @Test
+  public void testUnknownWithoutSamples() {
+    assertEquals(LatencyQuality.UNKNOWN, mLatencyClassManager.getCurrentLatencyQuality());
+    mLatencyClassManager.addLatency(0);
+    mLatencyClassManager.addLatency(-5);
+    assertEquals(LatencyQuality.UNKNOWN, mLatencyClassManager.getCurrentLatencyQuality());
+    assertEquals(-1, mLatencyClassManager.getLatencyMs(), 0);
+  }
+
+  @Test
+  public void testMovingAverage() {
+    mLatencyClassManager.addLatency(180);
+    mLatencyClassManager.addLatency(220);
+    mLatencyClassManager.addLatency(200);
+    assertEquals(LatencyQuality.GOOD, mLatencyClassManager.getCurrentLatencyQuality());
+  }
+
+  @Test
+  public void testStateChangeBroadcast() {
+    for (int i = 0; i < LatencyClassManager.DEFAULT_SAMPLES_TO_QUALITY_CHANGE; i++) {
+      mLatencyClassManager.addLatency(50);
+    }
+    assertEquals(0, mStateChanges.size());
+    mLatencyClassManager.addLatency(50);
+    assertEquals(1, mStateChanges.size());
+    assertEquals(LatencyQuality.EXCELLENT, mStateChanges.get(0));
+  }
+
+  // A single stalled request must not pull an excellent connection down to poor.
+  @Test
+  public void testOutlierIsClamped() {
+    for (int i = 0; i < 10; i++) {
+      mLatencyClassManager.addLatency(50);
+    }
+    mLatencyClassManager.addLatency(60000);
+    assertEquals(LatencyQuality.EXCELLENT, mLatencyClassManager.getCurrentLatencyQuality());
+  }
+
+  @Test
+  public void testReset() {
+    for (int i = 0; i < 10; i++) {
+      mLatencyClassManager.addLatency(2000);
+    }
+    assertEquals(LatencyQuality.POOR, mLatencyClassManager.getCurrentLatencyQuality());
+    mLatencyClassManager.reset();
+    assertEquals(LatencyQuality.UNKNOWN, mLatencyClassManager.getCurrentLatencyQuality());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MeteredInputStreamTest {
+
+  /** 2500 bytes every 20 ms: 1000 kbps at most. */
+  private static final int CHUNK_BYTES = 2500;
+  private static final long CHUNK_TIME_MS = 20;
+
+  private ConnectionClassManager mConnectionClassManager;
+
+  @Before
+  public void setUp() {
+    mConnectionClassManager = new ConnectionClassManager();
+  }
+
+  @Test
+  public void testExcludesGapsBetweenReads() throws Exception {
+    MeteredInputStream in = new MeteredInputStream(
+        new SlowInputStream(10), mConnectionClassManager, CHUNK_TIME_MS);
+    byte[] buffer = new byte[CHUNK_BYTES];
+    while (in.read(buffer, 0, buffer.length) != -1) {
+      // If this pause were counted, the measurement would be below 200 kbps.
+      Thread.sleep(4 * CHUNK_TIME_MS);
+    }
+    in.close();
+    assertPlausibleBandwidth();
+  }
+
+  @Test
+  public void testExcludesShortGapsBetweenReads() throws Exception {
+    MeteredInputStream in = new MeteredInputStream(
+        new SlowInputStream(20), mConnectionClassManager, 5 * CHUNK_TIME_MS);
+    byte[] buffer = new byte[CHUNK_BYTES];
+    while (in.read(buffer, 0, buffer.length) != -1) {
+      // Handling the data takes as long as the wait for it: counting this would halve the
+      // measurement.
+      Thread.sleep(CHUNK_TIME_MS);
+    }
+    in.close();
+    double kbps = mConnectionClassManager.getDownloadKBitsPerSecond();
+    assertTrue("Measured " + kbps + " kbps", kbps > 800 && kbps <= 1000);
+  }
+
+  @Test
+  public void testChannel() throws Exception {
+    ReadableByteChannel channel = new MeteredReadableByteChannel(
+        Channels.newChannel(new SlowInputStream(10)), mConnectionClassManager, CHUNK_TIME_MS);
+    ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+    while (channel.read(buffer) != -1) {
+      buffer.clear();
+    }
+    channel.close();
+    assertPlausibleBandwidth();
+  }
+
+  @Test
+  public void testNothingReportedWithoutReads() throws Exception {
+    new MeteredInputStream(new SlowInputStream(0), mConnectionClassManager).close();
+    assertEquals(-1, mConnectionClassManager.getDownloadKBitsPerSecond(), 0);
+  }
+
+  private void assertPlausibleBandwidth() {
+    double kbps = mConnectionClassManager.getDownloadKBitsPerSecond();
+    assertTrue("Measured " + kbps + " kbps", kbps > 300 && kbps <= 1000);
+  }
+
+  /**
+   * Returns a chunk of CHUNK_BYTES every CHUNK_TIME_MS.
+   */
+  private static class SlowInputStream extends InputStream {
+    private int mChunksLeft;
+
+    SlowInputStream(int chunks) {
+      mChunksLeft = chunks;
+    }
+
+    @Override
+    public int read() throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (mChunksLeft == 0) {
+        return -1;
+      }
+      mChunksLeft--;
+      try {
+        Thread.sleep(CHUNK_TIME_MS);
+      } catch (InterruptedException e) {
+        throw new IOException(e.toString());
+      }
+      return Math.min(length, CHUNK_BYTES);
+    }
+  }
+}
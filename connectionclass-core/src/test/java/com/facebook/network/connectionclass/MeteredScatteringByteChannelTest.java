@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Meters transfers from a loopback server that paces its writes to at most 1000 kbps. The
+ * server only starts once the client says it is ready to read, so that no data is buffered
+ * before the first read (see {@link TransferMeter}).
+ */
+public class MeteredScatteringByteChannelTest {
+
+  private static final int CHUNK_BYTES = 2500;
+  private static final long CHUNK_TIME_MS = 20;
+  private static final int CHUNKS = 10;
+  private static final long SAMPLE_INTERVAL_MS = 40;
+
+  private ConnectionClassManager mConnectionClassManager;
+  private ServerSocketChannel mServer;
+  private Thread mServerThread;
+
+  @Before
+  public void setUp() throws Exception {
+    mConnectionClassManager = new ConnectionClassManager();
+    mServer = ServerSocketChannel.open();
+    mServer.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    mServerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SocketChannel client = mServer.accept();
+          client.read(ByteBuffer.allocate(1));
+          ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+          for (int i = 0; i < CHUNKS; i++) {
+            Thread.sleep(CHUNK_TIME_MS);
+            chunk.clear();
+            while (chunk.hasRemaining()) {
+              client.write(chunk);
+            }
+          }
+          client.close();
+        } catch (Exception e) {
+          // The test fails on the client side.
+        }
+      }
+    });
+    mServerThread.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mServerThread.join();
+    mServer.close();
+  }
+
+  @Test
+  public void testBlockingReads() throws Exception {
+    SocketChannel socket = SocketChannel.open(mServer.socket().getLocalSocketAddress());
+    MeteredScatteringByteChannel channel =
+        new MeteredScatteringByteChannel(socket, mConnectionClassManager, SAMPLE_INTERVAL_MS);
+    ByteBuffer[] buffers = {ByteBuffer.allocateDirect(1000), ByteBuffer.allocateDirect(1000)};
+    sendReady(socket);
+    long total = 0;
+    long read;
+    while ((read = channel.read(buffers)) != -1) {
+      total += read;
+      buffers[0].clear();
+      buffers[1].clear();
+    }
+    channel.close();
+    assertEquals(CHUNK_BYTES * CHUNKS, total);
+    assertPlausibleBandwidth();
+  }
+
+  @Test
+  public void testNonBlockingReads() throws Exception {
+    SocketChannel socket = SocketChannel.open(mServer.socket().getLocalSocketAddress());
+    socket.configureBlocking(false);
+    Selector selector = Selector.open();
+    socket.register(selector, SelectionKey.OP_READ);
+    MeteredScatteringByteChannel channel =
+        new MeteredScatteringByteChannel(socket, mConnectionClassManager, SAMPLE_INTERVAL_MS);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+    sendReady(socket);
+    long total = 0;
+    long read = 0;
+    while (read != -1) {
+      selector.select();
+      selector.selectedKeys().clear();
+      while ((read = channel.read(buffer)) > 0) {
+        total += read;
+        buffer.clear();
+      }
+    }
+    channel.close();
+    selector.close();
+    assertEquals(CHUNK_BYTES * CHUNKS, total);
+    assertPlausibleBandwidth();
+  }
+
+  @Test
+  public void testTransferToFile() throws Exception {
+    SocketChannel socket = SocketChannel.open(mServer.socket().getLocalSocketAddress());
+    MeteredScatteringByteChannel channel =
+        new MeteredScatteringByteChannel(socket, mConnectionClassManager, SAMPLE_INTERVAL_MS);
+    File file = File.createTempFile("transfer", ".bin");
+    RandomAccessFile out = new RandomAccessFile(file, "rw");
+    FileChannel fileChannel = out.getChannel();
+    sendReady(socket);
+    long total = 0;
+    long transferred;
+    while ((transferred = channel.transferTo(fileChannel, total, CHUNK_BYTES)) > 0) {
+      total += transferred;
+    }
+    channel.close();
+    out.close();
+    file.delete();
+    assertEquals(CHUNK_BYTES * CHUNKS, total);
+    assertPlausibleBandwidth();
+  }
+
+  @Test
+  public void testAsynchronousReads() throws Exception {
+    AsynchronousSocketChannel socket = AsynchronousSocketChannel.open();
+    socket.connect(mServer.socket().getLocalSocketAddress()).get();
+    final MeteredAsynchronousByteChannel channel = new MeteredAsynchronousByteChannel(
+        socket, mConnectionClassManager, SAMPLE_INTERVAL_MS);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+    final CountDownLatch done = new CountDownLatch(1);
+    final long[] total = new long[1];
+    socket.write(ByteBuffer.wrap(new byte[1])).get();
+    channel.read(buffer, null, new CompletionHandler<Integer, Object>() {
+      @Override
+      public void completed(Integer result, Object attachment) {
+        if (result == -1) {
+          done.countDown();
+          return;
+        }
+        total[0] += result;
+        buffer.clear();
+        channel.read(buffer, null, this);
+      }
+
+      @Override
+      public void failed(Throwable exception, Object attachment) {
+        done.countDown();
+      }
+    });
+    done.await();
+    channel.close();
+    assertEquals(CHUNK_BYTES * CHUNKS, total[0]);
+    assertPlausibleBandwidth();
+  }
+
+  private static void sendReady(SocketChannel socket) throws IOException {
+    ByteBuffer ready = ByteBuffer.wrap(new byte[1]);
+    while (ready.hasRemaining()) {
+      socket.write(ready);
+    }
+  }
+
+  private void assertPlausibleBandwidth() {
+    double kbps = mConnectionClassManager.getDownloadKBitsPerSecond();
+    assertTrue("Measured " + kbps + " kbps", kbps > 0 && kbps <= 1200);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkSimulatorTest {
+
+  private static SimulationResult simulate(
+      LinkCapacityTrace trace,
+      long durationMs,
+      double samplesToQualityChange) {
+    ConnectionClassManager manager = new ConnectionClassManager(
+        new BandTable(
+            new double[] {
+                ConnectionClassManager.DEFAULT_POOR_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_MODERATE_BANDWIDTH,
+                ConnectionClassManager.DEFAULT_GOOD_BANDWIDTH},
+            ConnectionClassManager.DEFAULT_HYSTERESIS_PERCENT),
+        ConnectionClassManager.BANDWIDTH_QUALITIES,
+        samplesToQualityChange);
+    return new NetworkSimulator(manager, trace).run(durationMs);
+  }
+
+  @Test
+  public void testStepDown() {
+    SimulationResult result = simulate(LinkCapacityTrace.step(3000, 300, 30000), 120000, 5);
+    assertEquals(120, result.getPolls());
+    // EXCELLENT at the start, then MODERATE.
+    assertEquals(2, result.getTruthChanges());
+    assertEquals(2, result.getConvergences());
+    assertEquals(0, result.getFlaps());
+    assertTrue(result.getMaxConvergenceMs() < 40000);
+  }
+
+  @Test
+  public void testMoreSamplesConvergeSlower() {
+    LinkCapacityTrace trace = LinkCapacityTrace.cellularFade(3000, 0.05, 60000);
+    SimulationResult fast = simulate(trace, 600000, 5);
+    SimulationResult slow = simulate(trace, 600000, 10);
+    assertTrue(fast.getMeanConvergenceMs() < slow.getMeanConvergenceMs());
+    assertTrue(fast.getMisclassifiedFraction() < slow.getMisclassifiedFraction());
+    // The samples needed to change tier do not affect the average itself.
+    assertEquals(fast.getMeanRelativeError(), slow.getMeanRelativeError(), 1e-9);
+  }
+
+  @Test
+  public void testRepeatable() {
+    LinkCapacityTrace trace = LinkCapacityTrace.wifiHandoff(3000, 1000, 30000, 3000);
+    assertEquals(
+        simulate(trace, 120000, 5).toString(),
+        simulate(trace, 120000, 5).toString());
+  }
+
+  @Test
+  public void testRecordedTrace() {
+    LinkCapacityTrace trace = LinkCapacityTrace.recorded(
+        new long[] {0, 1000, 5000},
+        new double[] {100, 200, 300});
+    assertEquals(100, trace.getCapacityKbps(0), 0);
+    assertEquals(100, trace.getCapacityKbps(999), 0);
+    assertEquals(200, trace.getCapacityKbps(1000), 0);
+    assertEquals(300, trace.getCapacityKbps(100000), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordedTraceUnordered() {
+    LinkCapacityTrace.recorded(new long[] {0, 2000, 1000}, new double[] {100, 200, 300});
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchAdvisorTest {
+
+  private ConnectionClassManager mManager;
+  private PrefetchAdvisor mAdvisor;
+
+  @Before
+  public void setUp() {
+    mManager = new ConnectionClassManager();
+    mAdvisor = new PrefetchAdvisor(mManager);
+  }
+
+  @Test
+  public void testNoBudgetWhileUnknown() {
+    PrefetchBudget budget = mAdvisor.getBudget(10000);
+    assertEquals(0, budget.getBytes());
+    assertEquals(1, budget.getMaxConcurrentFetches());
+    assertEquals(ConnectionQuality.UNKNOWN, budget.getQuality());
+  }
+
+  @Test
+  public void testBudgetGrowsWithQuality() {
+    PrefetchBudget moderate =
+        PrefetchAdvisor.computeBudget(400, ConnectionQuality.MODERATE, false, 10000);
+    PrefetchBudget excellent =
+        PrefetchAdvisor.computeBudget(4000, ConnectionQuality.EXCELLENT, false, 10000);
+    // 400 kbps for 10 s is 500 KB, a quarter of which may be prefetched.
+    assertEquals(125000, moderate.getBytes());
+    assertTrue(excellent.getBytes() > 10 * moderate.getBytes());
+    assertTrue(excellent.getMaxConcurrentFetches() > moderate.getMaxConcurrentFetches());
+  }
+
+  @Test
+  public void testUnsettledHalvesBudget() {
+    PrefetchBudget settled =
+        PrefetchAdvisor.computeBudget(1000, ConnectionQuality.GOOD, false, 10000);
+    PrefetchBudget unsettled =
+        PrefetchAdvisor.computeBudget(1000, ConnectionQuality.GOOD, true, 10000);
+    assertEquals(settled.getBytes() / 2, unsettled.getBytes());
+    assertEquals(settled.getMaxConcurrentFetches() / 2, unsettled.getMaxConcurrentFetches());
+  }
+
+  @Test
+  public void testBudgetIsCachedUntilEstimateMoves() {
+    for (int i = 0; i < 30; i++) {
+      // 4000 kbps.
+      mManager.addBandwidth(1000, 2);
+    }
+    PrefetchBudget budget = mAdvisor.getBudget(5000);
+    assertEquals(ConnectionQuality.EXCELLENT, budget.getQuality());
+    mManager.addBandwidth(1010, 2);
+    assertSame(budget, mAdvisor.getBudget(5000));
+    assertNotSame(budget, mAdvisor.getBudget(10000));
+    for (int i = 0; i < 30; i++) {
+      mManager.addBandwidth(2000, 2);
+    }
+    assertTrue(mAdvisor.getBudget(10000).getBytes() > budget.getBytes() * 2);
+  }
+}
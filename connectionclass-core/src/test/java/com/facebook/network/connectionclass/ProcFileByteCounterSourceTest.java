@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProcFileByteCounterSourceTest {
+
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  @Test
+  public void testProcNetDevSumsAllButLoopback() {
+    ProcNetDevByteCounterSource source = new ProcNetDevByteCounterSource(fixture("proc_net_dev.txt"));
+    assertEquals(3839216487L + 12000000L, source.getRxBytes());
+    // The same file is re-read on every poll.
+    assertEquals(3839216487L + 12000000L, source.getRxBytes());
+    assertEquals(183524931L + 1200000L, source.getTxBytes());
+    source.close();
+  }
+
+  @Test
+  public void testQtaguidCountsUntaggedBytesOfUid() {
+    QtaguidByteCounterSource source =
+        new QtaguidByteCounterSource(fixture("xt_qtaguid_stats.txt"), 10045);
+    assertEquals(3000000000L + 250000L + 500000L, source.getRxBytes());
+    assertEquals(120000L + 10000L + 30000L, source.getTxBytes());
+    source.close();
+  }
+
+  @Test
+  public void testRxAndTxOfOnePollComeFromOneRead() throws IOException {
+    File file = mFolder.newFile("dev");
+    copyFixture("proc_net_dev.txt", file);
+    ProcNetDevByteCounterSource source = new ProcNetDevByteCounterSource(file.getPath());
+    assertEquals(3839216487L + 12000000L, source.getRxBytes());
+    // The counters move on between the two reads of the poll.
+    copyFixture("xt_qtaguid_stats.txt", file);
+    assertEquals(183524931L + 1200000L, source.getTxBytes());
+    // A poll that only wants the sent bytes reads the file again.
+    assertEquals(ByteCounterSource.UNSUPPORTED, source.getTxBytes());
+    source.close();
+  }
+
+  @Test
+  public void testMissingFileIsUnsupported() {
+    ProcNetDevByteCounterSource source =
+        new ProcNetDevByteCounterSource(new File("does/not/exist").getAbsolutePath());
+    assertEquals(ByteCounterSource.UNSUPPORTED, source.getRxBytes());
+  }
+
+  private static void copyFixture(String name, File file) throws IOException {
+    InputStream in = ProcFileByteCounterSourceTest.class.getResourceAsStream(name);
+    OutputStream out = new FileOutputStream(file);
+    try {
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  private static String fixture(String name) {
+    return new File(ProcFileByteCounterSourceTest.class.getResource(name).getFile()).getPath();
+  }
+}
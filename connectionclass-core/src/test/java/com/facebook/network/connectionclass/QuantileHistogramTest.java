@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileHistogramTest {
+
+  private static final double TOLERANCE = 0.04;
+
+  @Test
+  public void testEmpty() {
+    QuantileHistogram histogram = new QuantileHistogram(1000);
+    assertEquals(-1, histogram.getQuantile(0.5), 0);
+  }
+
+  @Test
+  public void testQuantilesOfUniformSamples() {
+    QuantileHistogram histogram = new QuantileHistogram(100000);
+    for (int i = 1; i <= 10000; i++) {
+      histogram.addMeasurement(i);
+    }
+    assertClose(1000, histogram.getQuantile(0.1));
+    assertClose(5000, histogram.getQuantile(0.5));
+    assertClose(9000, histogram.getQuantile(0.9));
+    assertClose(10000, histogram.getQuantile(1));
+  }
+
+  @Test
+  public void testBucketsCoverRange() {
+    for (double value = 1; value < 1e10; value *= 1.01) {
+      assertClose(value, QuantileHistogram.midpointOf(QuantileHistogram.bucketOf(value)));
+    }
+  }
+
+  @Test
+  public void testIgnoresNonPositive() {
+    QuantileHistogram histogram = new QuantileHistogram(1000);
+    histogram.addMeasurement(0);
+    histogram.addMeasurement(-5);
+    histogram.addMeasurement(Double.NaN);
+    assertEquals(0, histogram.getCount());
+  }
+
+  // After aging, the recent samples dominate.
+  @Test
+  public void testAging() {
+    QuantileHistogram histogram = new QuantileHistogram(100);
+    for (int i = 0; i < 1000; i++) {
+      histogram.addMeasurement(100);
+    }
+    for (int i = 0; i < 1000; i++) {
+      histogram.addMeasurement(5000);
+    }
+    assertTrue(histogram.getCount() < 100);
+    assertClose(5000, histogram.getQuantile(0.1));
+  }
+
+  // Aging a sparse histogram fades single measurements instead of dropping them.
+  @Test
+  public void testAgingSparse() {
+    QuantileHistogram histogram = new QuantileHistogram(2);
+    for (int i = 1; i <= 100; i++) {
+      histogram.addMeasurement(i * 1000);
+      assertTrue(histogram.getCount() > 0);
+      assertClose(i * 1000, histogram.getQuantile(1));
+    }
+
+    histogram = new QuantileHistogram(10);
+    for (int i = 0; i < 9; i++) {
+      histogram.addMeasurement(100);
+    }
+    histogram.addMeasurement(1000000);
+    assertClose(100, histogram.getQuantile(0.5));
+    assertClose(1000000, histogram.getQuantile(1));
+  }
+
+  @Test
+  public void testManagerQuantiles() {
+    ConnectionClassManager manager = new ConnectionClassManager();
+    assertEquals(-1, manager.getDownloadKBitsPerSecondQuantile(0.1), 0);
+    for (int i = 1; i <= 100; i++) {
+      // i * 100 kbps.
+      manager.addBandwidth(i * 100, 8);
+    }
+    assertClose(1000, manager.getDownloadKBitsPerSecondQuantile(0.1));
+    assertClose(10000, manager.getDownloadKBitsPerSecondQuantile(1));
+    manager.reset();
+    assertEquals(-1, manager.getDownloadKBitsPerSecondQuantile(0.5), 0);
+  }
+
+  private static void assertClose(double expected, double actual) {
+    assertEquals(expected, actual, expected * TOLERANCE);
+  }
+}
@@ -10,34 +10,24 @@
 
 package com.facebook.network.connectionclass;
 
-import android.net.TrafficStats;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
-import android.os.Message;
-import android.os.SystemClock;
-
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.annotation.Nonnull;
 
 /**
  * Class used to read from TrafficStats periodically, in order to determine a ConnectionClass.
+ * The sampling itself is done by a {@link BandwidthSampler}, polled by a
+ * {@link BandwidthSamplingLoop}; no thread is started until sampling is.
  */
 public class DeviceBandwidthSampler {
 
   /**
-   * The DownloadBandwidthManager that keeps track of the moving average and ConnectionClass.
+   * Turns TrafficStats readings into samples for the ConnectionClassManager.
    */
-  private final ConnectionClassManager mConnectionClassManager;
-
-  private AtomicInteger mSamplingCounter;
-
-  private SamplingHandler mHandler;
-  private HandlerThread mThread;
+  private final BandwidthSampler mBandwidthSampler;
 
-  private long mLastTimeReading;
-  private static long sPreviousBytes = -1;
+  /** Polls mBandwidthSampler while sampling. */
+  private final BandwidthSamplingLoop mSamplingLoop;
 
   // Singleton.
   private static class DeviceBandwidthSamplerHolder {
@@ -56,21 +46,46 @@ public class DeviceBandwidthSampler {
 
   private DeviceBandwidthSampler(
       ConnectionClassManager connectionClassManager) {
-    mConnectionClassManager = connectionClassManager;
-    mSamplingCounter = new AtomicInteger();
-    mThread = new HandlerThread("ParseThread");
-    mThread.start();
-    mHandler = new SamplingHandler(mThread.getLooper());
+    mBandwidthSampler = new BandwidthSampler(
+        connectionClassManager,
+        new TrafficStatsByteCounterSource(),
+        new ElapsedRealtimeClock());
+    mSamplingLoop = new BandwidthSamplingLoop(mBandwidthSampler);
   }
 
   /**
-   * Method call to start sampling for download bandwidth.
+   * Switches between polling at a fixed rate (the default) and adaptive polling, which backs off
+   * while nothing is downloaded and polls more often during transfers. Takes effect from the
+   * next sampling session.
+   * @param samplingPolicy Policy deciding the delay between polls, or null for a fixed rate.
+   */
+  public void setSamplingPolicy(AdaptiveSamplingPolicy samplingPolicy) {
+    mSamplingLoop.setSamplingPolicy(samplingPolicy);
+  }
+
+  /**
+   * Polls on the given scheduler, e.g. one the app already runs periodic work on, instead of
+   * a thread shared by all samplers that only lives while sampling. Takes effect from the next
+   * sampling session.
+   * @param scheduler Scheduler to poll on, or null for the shared one.
+   */
+  public void setScheduler(ScheduledExecutorService scheduler) {
+    mSamplingLoop.setScheduler(scheduler);
+  }
+
+  /**
+   * Attaches a sink for the poll count and latency of this sampler.
+   * @param sink Sink to report to, or null to stop reporting.
+   */
+  public void setMetricsSink(MetricsSink sink) {
+    mBandwidthSampler.setMetricsSink(sink);
+  }
+
+  /**
+   * Method call to start sampling for download and upload bandwidth.
    */
   public void startSampling() {
-    if (mSamplingCounter.getAndIncrement() == 0) {
-      mHandler.startSamplingThread();
-      mLastTimeReading = SystemClock.elapsedRealtime();
-    }
+    mSamplingLoop.startSampling();
   }
 
   /**
@@ -78,10 +93,7 @@ public class DeviceBandwidthSampler {
    * ConnectionClass until another timer is started.
    */
   public void stopSampling() {
-    if (mSamplingCounter.decrementAndGet() == 0) {
-      mHandler.stopSamplingThread();
-      addFinalSample();
-    }
+    mSamplingLoop.stopSampling();
   }
 
   /**
@@ -89,17 +101,7 @@ public class DeviceBandwidthSampler {
    * adding it to the BandwidthManager.
    */
   protected void addSample() {
-    long newBytes = TrafficStats.getTotalRxBytes();
-    long byteDiff = newBytes - sPreviousBytes;
-    if (sPreviousBytes >= 0) {
-      synchronized (this) {
-        long curTimeReading = SystemClock.elapsedRealtime();
-        mConnectionClassManager.addBandwidth(byteDiff, curTimeReading - mLastTimeReading);
-
-        mLastTimeReading = curTimeReading;
-      }
-    }
-    sPreviousBytes = newBytes;
+    mBandwidthSampler.addSample();
   }
 
   /**
@@ -107,48 +109,13 @@ public class DeviceBandwidthSampler {
    * we don't count bytes downloaded in between sampling sessions.
    */
   protected void addFinalSample() {
-    addSample();
-    sPreviousBytes = -1;
+    mBandwidthSampler.addFinalSample();
   }
 
   /**
    * @return True if there are still threads which are sampling, false otherwise.
    */
   public boolean isSampling() {
-    return (mSamplingCounter.get() != 0);
-  }
-
-  private class SamplingHandler extends Handler {
-      /**
-       * Time between polls in ms.
-       */
-      static final long SAMPLE_TIME = 1000;
-
-      static private final int MSG_START = 1;
-
-      public SamplingHandler(Looper looper) {
-          super(looper);
-      }
-
-      @Override
-      public void handleMessage(Message msg) {
-          switch (msg.what) {
-              case MSG_START:
-                  addSample();
-                  sendEmptyMessageDelayed(MSG_START, SAMPLE_TIME);
-                  break;
-              default:
-                  throw new IllegalArgumentException("Unknown what=" + msg.what);
-          }
-      }
-
-
-      public void startSamplingThread() {
-          sendEmptyMessage(SamplingHandler.MSG_START);
-      }
-
-      public void stopSamplingThread() {
-          removeMessages(SamplingHandler.MSG_START);
-      }
+    return mSamplingLoop.isSampling();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import android.os.SystemClock;
+
+/**
+ * {@link Clock} backed by {@link SystemClock#elapsedRealtime()}.
+ */
+public class ElapsedRealtimeClock implements Clock {
+
+  @Override
+  public long elapsedRealtime() {
+    return SystemClock.elapsedRealtime();
+  }
+}
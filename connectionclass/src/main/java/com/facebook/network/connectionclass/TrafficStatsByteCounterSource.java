@@ -0,0 +1,30 @@
+/*
+ *  Copyright (c) 2015, Facebook, Inc.
+ *  All rights reserved.
+ *
+ *  This source code is licensed under the BSD-style license found in the
+ *  LICENSE file in the root directory of this source tree. An additional grant
+ *  of patent rights can be found in the PATENTS file in the same directory.
+ *
+ */
+
+package com.facebook.network.connectionclass;
+
+import android.net.TrafficStats;
+
+/**
+ * {@link ByteCounterSource} reading the device-wide counters from {@link TrafficStats}.
+ */
+public class TrafficStatsByteCounterSource implements ByteCounterSource {
+
+  @Override
+  public long getRxBytes() {
+    // TrafficStats.UNSUPPORTED has the same value as ByteCounterSource.UNSUPPORTED.
+    return TrafficStats.getTotalRxBytes();
+  }
+
+  @Override
+  public long getTxBytes() {
+    return TrafficStats.getTotalTxBytes();
+  }
+}